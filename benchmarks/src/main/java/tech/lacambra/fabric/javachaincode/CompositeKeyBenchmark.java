@@ -0,0 +1,110 @@
+package tech.lacambra.fabric.javachaincode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.lacambra.fabric.javachaincode.ledger.CompositeKey;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.joining;
+
+/*
+ * Compares the char scan of CompositeKey with the regex based implementation it replaced,
+ * kept below as the *Regex baselines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompositeKeyBenchmark {
+
+    @Param({"1", "4", "8"})
+    private int attributeCount;
+
+    private String[] attributes;
+    private String compositeKey;
+
+    @Setup
+    public void setUp() {
+        attributes = new String[attributeCount];
+        for (int i = 0; i < attributeCount; i++) {
+            attributes[i] = "attribute-value-" + i;
+        }
+        compositeKey = new CompositeKey("asset", attributes).toString();
+    }
+
+    @Benchmark
+    public String create() {
+        return new CompositeKey("asset", attributes).toString();
+    }
+
+    @Benchmark
+    public CompositeKey parse() {
+        return CompositeKey.parseCompositeKey(compositeKey);
+    }
+
+    @Benchmark
+    public String parseLastAttribute() {
+        final List<String> parsed = CompositeKey.parseCompositeKey(compositeKey).getAttributes();
+        return parsed.get(parsed.size() - 1);
+    }
+
+    @Benchmark
+    public String createRegex() {
+        return RegexCompositeKey.create("asset", Arrays.asList(attributes));
+    }
+
+    @Benchmark
+    public String parseRegex() {
+        return RegexCompositeKey.parse(compositeKey);
+    }
+
+    /*
+     * The previous implementation: every segment is validated with a freshly compiled
+     * pattern and parsing splits on the delimiter, then builds the key again, which
+     * validates the segments once more.
+     */
+    private static class RegexCompositeKey {
+
+        private static final String DELIMITER = new String(Character.toChars(Character.MIN_CODE_POINT));
+        private static final String NAMESPACE = DELIMITER;
+        private static final String INVALID_SEGMENT_CHAR = new String(Character.toChars(Character.MAX_CODE_POINT));
+        private static final String INVALID_SEGMENT_PATTERN = String.format("(?:%s|%s)", INVALID_SEGMENT_CHAR, DELIMITER);
+
+        private static String create(String objectType, List<String> attributes) {
+            validateCompositeKeySegment(objectType);
+            if (attributes == null || attributes.isEmpty()) {
+                return NAMESPACE + objectType + DELIMITER;
+            }
+            attributes.forEach(RegexCompositeKey::validateCompositeKeySegment);
+            return attributes.stream().collect(joining(DELIMITER, NAMESPACE + objectType + DELIMITER, DELIMITER));
+        }
+
+        private static String parse(String compositeKey) {
+            final String[] segments = compositeKey.split(DELIMITER, 0);
+            return create(segments[1], Arrays.asList(Arrays.stream(segments).skip(2).toArray(String[]::new)));
+        }
+
+        private static void validateCompositeKeySegment(String segment) {
+            final Matcher matcher = Pattern.compile(INVALID_SEGMENT_PATTERN).matcher(segment);
+            if (matcher.find()) {
+                throw new IllegalArgumentException("Invalid segment " + segment + " at " + matcher.start());
+            }
+        }
+    }
+}
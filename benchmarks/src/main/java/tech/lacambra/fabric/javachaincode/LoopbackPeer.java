@@ -0,0 +1,73 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import io.grpc.stub.StreamObserver;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory peer answering the requests of a {@link ChatStream} without any transport. The
+ * answers are delivered from a single thread, as gRPC does, so that they never run within
+ * the queue update that sent the request.
+ */
+class LoopbackPeer implements StreamObserver<ChaincodeMessage> {
+
+    private final Function<ChaincodeMessage, ChaincodeMessage> responder;
+    private final ChatStream chatStream;
+    private final ExecutorService deliveryThread;
+
+    LoopbackPeer(int pipelineWindow, Function<ChaincodeMessage, ChaincodeMessage> responder) {
+        // the messages are still formatted by the shim, only their output is dropped
+        Logger.getLogger("tech.lacambra.fabric.javachaincode").setLevel(Level.WARNING);
+
+        this.responder = responder;
+        this.chatStream = new ChatStream(this, pipelineWindow);
+        this.deliveryThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loopback-peer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    ChatStream getChatStream() {
+        return chatStream;
+    }
+
+    PeerMessageHandler newHandler() {
+        return new PeerMessageHandler(chatStream);
+    }
+
+    static ChaincodeMessage response(ChaincodeMessage request, ByteString payload) {
+        return ChaincodeMessage.newBuilder()
+                .setType(ChaincodeMessage.Type.RESPONSE)
+                .setChannelId(request.getChannelId())
+                .setTxid(request.getTxid())
+                .setPayload(payload)
+                .build();
+    }
+
+    @Override
+    public void onNext(ChaincodeMessage request) {
+        final ChaincodeMessage response = responder.apply(request);
+        if (response != null) {
+            deliveryThread.execute(() -> chatStream.onNext(response));
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+    }
+
+    @Override
+    public void onCompleted() {
+    }
+
+    void close() {
+        deliveryThread.shutdownNow();
+    }
+}
@@ -0,0 +1,59 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the messages sent for every state access.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageFactoryBenchmark {
+
+    @Param({"0", "1024", "65536"})
+    private int valueSize;
+
+    private String channelId;
+    private String txId;
+    private ByteString value;
+
+    @Setup
+    public void setUp() {
+        channelId = "mychannel";
+        txId = UUID.randomUUID().toString();
+        value = ByteString.copyFrom(new byte[valueSize]);
+    }
+
+    @Benchmark
+    public ChaincodeMessage newEventMessage() {
+        return MessageFactory.newEventMessage(ChaincodeMessage.Type.RESPONSE, channelId, txId, value);
+    }
+
+    @Benchmark
+    public ChaincodeMessage newGetStateEventMessage() {
+        return MessageFactory.newGetStateEventMessage(channelId, txId, "asset-0001");
+    }
+
+    @Benchmark
+    public ChaincodeMessage newPutStateEventMessage() {
+        return MessageFactory.newPutStateEventMessage(channelId, txId, "asset-0001", value);
+    }
+}
@@ -0,0 +1,77 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Round trip of the requests of a transaction through the queue of {@link ChatStream}: enqueue,
+ * write, match the response and complete the pending future. Run with several threads to
+ * measure concurrent transactions sharing the stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MsgQueueHandlerBenchmark {
+
+    @Param({"1", "4", "16"})
+    private int pipelineWindow;
+
+    @Param({"1", "16"})
+    private int requestsPerTransaction;
+
+    private LoopbackPeer peer;
+
+    @Setup
+    public void setUp() {
+        final ByteString value = ByteString.copyFrom(new byte[256]);
+        peer = new LoopbackPeer(pipelineWindow, request -> LoopbackPeer.response(request, value));
+    }
+
+    @TearDown
+    public void tearDown() {
+        peer.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Transactions {
+
+        private static final AtomicInteger THREADS = new AtomicInteger();
+
+        private final String prefix = "tx-" + THREADS.incrementAndGet() + '-';
+        private long sequence;
+
+        String nextTxId() {
+            return prefix + sequence++;
+        }
+    }
+
+    @Benchmark
+    public Object transaction(Transactions transactions) {
+        final String txId = transactions.nextTxId();
+        final CompletableFuture<?>[] responses = new CompletableFuture[requestsPerTransaction];
+        for (int i = 0; i < requestsPerTransaction; i++) {
+            final ChaincodeMessage request = MessageFactory.newGetStateEventMessage("mychannel", txId, "asset-" + i);
+            responses[i] = peer.getChatStream().sendMessage(request);
+        }
+        return CompletableFuture.allOf(responses).join();
+    }
+}
@@ -0,0 +1,120 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.hyperledger.fabric.protos.ledger.queryresult.KvQueryResult;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResponse;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResultBytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tech.lacambra.fabric.javachaincode.ledger.KeyValue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Consumption of a range query of totalResults results served in pages of pageSize, with
+ * the blocking iterator and with forEachAsync. The pages are built once, the loopback peer
+ * only looks them up by query id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryResultsIteratorBenchmark {
+
+    private static final Function<QueryResultBytes, KeyValue> TO_KEY_VALUE = bytes -> {
+        try {
+            return new KeyValueImpl(KvQueryResult.KV.parseFrom(bytes.getResultBytes()));
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException(e);
+        }
+    };
+
+    @Param({"1000", "10000"})
+    private int totalResults;
+
+    @Param({"100"})
+    private int pageSize;
+
+    @Param({"0", "1", "4"})
+    private int prefetchDepth;
+
+    private final AtomicLong txIds = new AtomicLong();
+    private Map<String, QueryResponse> pages;
+    private LoopbackPeer peer;
+    private PeerMessageHandler handler;
+
+    @Setup
+    public void setUp() {
+        // the id of a page is the index of its first result
+        pages = new HashMap<>();
+        final ByteString value = ByteString.copyFrom(new byte[128]);
+        for (int first = 0; first < totalResults; first += pageSize) {
+            final QueryResponse.Builder page = QueryResponse.newBuilder()
+                    .setId(String.valueOf(first))
+                    .setHasMore(first + pageSize < totalResults);
+            for (int i = first; i < Math.min(first + pageSize, totalResults); i++) {
+                page.addResults(QueryResultBytes.newBuilder().setResultBytes(KvQueryResult.KV.newBuilder()
+                        .setKey(String.format("asset-%08d", i))
+                        .setValue(value)
+                        .build().toByteString()));
+            }
+            pages.put(String.valueOf(first), page.build());
+        }
+
+        peer = new LoopbackPeer(ChaincodeOptions.DEFAULT_PIPELINE_WINDOW, this::answer);
+        handler = peer.newHandler();
+    }
+
+    @TearDown
+    public void tearDown() {
+        peer.close();
+    }
+
+    private ChaincodeMessage answer(ChaincodeMessage request) {
+        try {
+            final String id = ChaincodeShim.QueryStateNext.parseFrom(request.getPayload()).getId();
+            final QueryResponse current = pages.get(id);
+            final QueryResponse next = pages.get(String.valueOf(Integer.parseInt(current.getId()) + pageSize));
+            return LoopbackPeer.response(request, next.toByteString());
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private QueryResultsIteratorImpl<KeyValue> newIterator() {
+        return new QueryResultsIteratorImpl<>(handler, "mychannel", "query-" + txIds.incrementAndGet(), pages.get("0"),
+                TO_KEY_VALUE, prefetchDepth);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (KeyValue keyValue : newIterator()) {
+            blackhole.consume(keyValue);
+        }
+    }
+
+    @Benchmark
+    public void forEachAsync(Blackhole blackhole) {
+        newIterator().forEachAsync(blackhole::consume).join();
+    }
+}
@@ -0,0 +1,111 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.peer.ProposalPackage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-transaction setup cost: building the stub from the TRANSACTION message, then decoding
+ * the proposal parts most chaincodes read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StubBenchmark {
+
+    private LoopbackPeer peer;
+    private PeerMessageHandler handler;
+    private ChaincodeOptions options;
+    private ClientIdentityCache clientIdentities;
+    private List<ByteString> args;
+    private ProposalPackage.SignedProposal signedProposal;
+
+    @Setup
+    public void setUp() {
+        peer = new LoopbackPeer(ChaincodeOptions.DEFAULT_PIPELINE_WINDOW, request -> null);
+        handler = peer.newHandler();
+        options = new ChaincodeOptions();
+        clientIdentities = new ClientIdentityCache(options.getClientIdentityCacheSize());
+        args = Arrays.asList(ByteString.copyFromUtf8("transfer"), ByteString.copyFromUtf8("alice"),
+                ByteString.copyFromUtf8("bob"), ByteString.copyFromUtf8("100"));
+        signedProposal = newSignedProposal();
+    }
+
+    @TearDown
+    public void tearDown() {
+        peer.close();
+    }
+
+    private static ProposalPackage.SignedProposal newSignedProposal() {
+        final Common.ChannelHeader channelHeader = Common.ChannelHeader.newBuilder()
+                .setType(Common.HeaderType.ENDORSER_TRANSACTION_VALUE)
+                .setChannelId("mychannel")
+                .setTxId("benchmark-tx")
+                .setEpoch(0)
+                .setTimestamp(Timestamp.newBuilder().setSeconds(1530000000).setNanos(42))
+                .build();
+        final Common.SignatureHeader signatureHeader = Common.SignatureHeader.newBuilder()
+                .setCreator(ByteString.copyFrom(new byte[800]))
+                .setNonce(ByteString.copyFrom(new byte[24]))
+                .build();
+        final Common.Header header = Common.Header.newBuilder()
+                .setChannelHeader(channelHeader.toByteString())
+                .setSignatureHeader(signatureHeader.toByteString())
+                .build();
+        final ProposalPackage.ChaincodeProposalPayload payload = ProposalPackage.ChaincodeProposalPayload.newBuilder()
+                .putTransientMap("secret", ByteString.copyFrom(new byte[64]))
+                .build();
+        final ProposalPackage.Proposal proposal = ProposalPackage.Proposal.newBuilder()
+                .setHeader(header.toByteString())
+                .setPayload(payload.toByteString())
+                .build();
+        return ProposalPackage.SignedProposal.newBuilder()
+                .setProposalBytes(proposal.toByteString())
+                .setSignature(ByteString.copyFrom(new byte[72]))
+                .build();
+    }
+
+    private AsyncChaincodeStubImpl newStub() {
+        return new AsyncChaincodeStubImpl("mychannel", "benchmark-tx", handler, args, signedProposal, options, clientIdentities);
+    }
+
+    @Benchmark
+    public Object construct() {
+        return newStub();
+    }
+
+    @Benchmark
+    public void constructAndRoute(Blackhole blackhole) {
+        final AsyncChaincodeStubImpl stub = newStub();
+        blackhole.consume(stub.getFunction());
+        blackhole.consume(stub.getParameters());
+    }
+
+    @Benchmark
+    public void constructAndReadProposal(Blackhole blackhole) {
+        final AsyncChaincodeStubImpl stub = newStub();
+        blackhole.consume(stub.getTxTimestamp());
+        blackhole.consume(stub.getCreator());
+        blackhole.consume(stub.getBinding());
+    }
+}
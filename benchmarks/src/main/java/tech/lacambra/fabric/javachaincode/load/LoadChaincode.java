@@ -0,0 +1,48 @@
+package tech.lacambra.fabric.javachaincode.load;
+
+import io.vertx.core.Vertx;
+import tech.lacambra.fabric.javachaincode.AsyncChaincodeStub;
+import tech.lacambra.fabric.javachaincode.ChaincodeBase;
+import tech.lacambra.fabric.javachaincode.ChaincodeFunction;
+import tech.lacambra.fabric.javachaincode.ChaincodeOptions;
+import tech.lacambra.fabric.javachaincode.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chaincode driven by the load harness. Every function composes the stub futures, so the
+ * measured latency is the one of the shim and the peer, not of blocked workers.
+ */
+public class LoadChaincode extends ChaincodeBase {
+
+    private static final Response SUCCESS = new Response(Response.Status.SUCCESS, null, null);
+
+    public LoadChaincode(Vertx vertx, ChaincodeOptions options) {
+        super(vertx, options);
+    }
+
+    @Override
+    public Response init(AsyncChaincodeStub stub) {
+        return SUCCESS;
+    }
+
+    @ChaincodeFunction
+    public CompletionStage<Response> read(AsyncChaincodeStub stub, String key) {
+        return stub.getState(key).thenApply(value -> new Response(Response.Status.SUCCESS, null, value));
+    }
+
+    @ChaincodeFunction
+    public CompletionStage<Response> write(AsyncChaincodeStub stub, String key, String value) {
+        return stub.putState(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @ChaincodeFunction
+    public CompletionStage<Response> scan(AsyncChaincodeStub stub, String startKey, String endKey) {
+        final AtomicInteger count = new AtomicInteger();
+        return stub.getStateByRange(startKey, endKey)
+                .thenCompose(results -> results.forEachAsync(keyValue -> count.incrementAndGet()))
+                .thenApply(done -> new Response(Response.Status.SUCCESS, null, String.valueOf(count.get()).getBytes(StandardCharsets.UTF_8)));
+    }
+}
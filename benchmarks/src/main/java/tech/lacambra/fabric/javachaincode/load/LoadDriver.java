@@ -0,0 +1,237 @@
+package tech.lacambra.fabric.javachaincode.load;
+
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.vertx.core.Vertx;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+import tech.lacambra.fabric.javachaincode.ChaincodeOptions;
+import tech.lacambra.fabric.javachaincode.mock.MockPeer;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load driver: starts a {@link LoadChaincode} against an in-process
+ * {@link MockPeer} and fires transactions at it, either at a fixed rate or from a fixed number
+ * of closed-loop clients.
+ * <pre>
+ * java -cp target/benchmarks.jar tech.lacambra.fabric.javachaincode.load.LoadDriver \
+ *     --workload=read=80,write=20 --rate=5000 --duration=60 --histogram-log=load.hlog
+ * </pre>
+ * Options, all with a default:
+ * <ul>
+ * <li><code>--workload</code> the operation mix, see {@link Workload}</li>
+ * <li><code>--rate</code> transactions per second, fixed-rate mode; latencies are measured
+ * from the intended start of each transaction so that stalls are not hidden</li>
+ * <li><code>--concurrency</code> number of closed-loop clients, used when no rate is set</li>
+ * <li><code>--duration</code> and <code>--warmup</code> in seconds</li>
+ * <li><code>--keys</code>, <code>--value-size</code> and <code>--scan-length</code> shape the data</li>
+ * <li><code>--peer-latency</code> delay of every peer answer in milliseconds</li>
+ * <li><code>--pipeline-window</code> and <code>--workers</code> tune the shim</li>
+ * <li><code>--histogram-log</code> file receiving one HdrHistogram interval histogram per second</li>
+ * </ul>
+ * Latencies are recorded in microseconds. Each phase stops issuing transactions at its end and
+ * waits for the outstanding ones, which are still part of its histogram, before the next phase
+ * starts.
+ */
+public class LoadDriver {
+
+    private static final String CHANNEL_ID = "load";
+
+    private final Workload workload;
+    private final MockPeer peer;
+    private final AtomicLong txIds;
+
+    private LoadDriver(Workload workload, MockPeer peer) {
+        this.workload = workload;
+        this.peer = peer;
+        this.txIds = new AtomicLong();
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = parseOptions(args);
+
+        final Workload workload = Workload.parse(options.getOrDefault("workload", "read=80,write=20"),
+                Integer.parseInt(options.getOrDefault("keys", "10000")),
+                Integer.parseInt(options.getOrDefault("scan-length", "50")),
+                Integer.parseInt(options.getOrDefault("value-size", "256")));
+        final int rate = Integer.parseInt(options.getOrDefault("rate", "0"));
+        final int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        final long duration = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "30")));
+        final long warmup = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "5")));
+
+        final Vertx vertx = Vertx.vertx();
+        final MockPeer peer = new MockPeer(vertx).setLatency(Long.parseLong(options.getOrDefault("peer-latency", "0")));
+        workload.seed(peer.getState());
+
+        final ChaincodeOptions chaincodeOptions = new ChaincodeOptions()
+                .setPipelineWindow(Integer.parseInt(options.getOrDefault("pipeline-window", String.valueOf(ChaincodeOptions.DEFAULT_PIPELINE_WINDOW))))
+                .setMaxConcurrentTransactions(Integer.parseInt(options.getOrDefault("workers", String.valueOf(ChaincodeOptions.DEFAULT_MAX_CONCURRENT_TRANSACTIONS))));
+        final ManagedChannel channel = peer.newInProcessChannel();
+        new LoadChaincode(vertx, chaincodeOptions).chatWithPeer(channel);
+        peer.registration().get(10, TimeUnit.SECONDS);
+
+        final LoadDriver driver = new LoadDriver(workload, peer);
+        final PrintStream log = options.containsKey("histogram-log") ? new PrintStream(options.get("histogram-log")) : null;
+
+        System.out.printf("Warming up for %d s%n", TimeUnit.NANOSECONDS.toSeconds(warmup));
+        driver.run(rate, concurrency, warmup, null);
+        System.out.printf("Measuring for %d s%n", TimeUnit.NANOSECONDS.toSeconds(duration));
+        final Phase measured = driver.run(rate, concurrency, duration, log);
+        final Histogram total = measured.total;
+
+        final double seconds = duration / 1e9;
+        System.out.printf("transactions=%d errors=%d throughput=%.1f tx/s%n", total.getTotalCount(), measured.errors.get(), total.getTotalCount() / seconds);
+        System.out.printf("latency (us) p50=%d p99=%d p999=%d max=%d%n",
+                total.getValueAtPercentile(50), total.getValueAtPercentile(99), total.getValueAtPercentile(99.9), total.getMaxValue());
+
+        if (log != null) {
+            log.close();
+        }
+        channel.shutdownNow();
+        peer.close();
+        vertx.close();
+    }
+
+    /*
+     * Runs the load for the given duration and returns the latencies of the transactions
+     * issued in that period, one interval histogram being logged per second.
+     */
+    private Phase run(int rate, int concurrency, long duration, PrintStream log) throws InterruptedException {
+        final HistogramLogWriter logWriter = log == null ? null : new HistogramLogWriter(log);
+        final long startMillis = System.currentTimeMillis();
+        if (logWriter != null) {
+            logWriter.outputLogFormatVersion();
+            logWriter.outputStartTime(startMillis);
+            logWriter.setBaseTime(startMillis);
+            logWriter.outputLegend();
+        }
+
+        final Phase phase = new Phase();
+
+        final Thread generator;
+        if (rate > 0) {
+            generator = new Thread(() -> fixedRate(phase, rate), "load-generator");
+            generator.setDaemon(true);
+            generator.start();
+        } else {
+            generator = null;
+            phase.outstanding.addAndGet(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                closedLoop(phase);
+            }
+        }
+
+        Histogram interval = null;
+        final long end = System.nanoTime() + duration;
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.max(1, Math.min(1000, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+            interval = phase.recorder.getIntervalHistogram(interval);
+            phase.total.add(interval);
+            if (logWriter != null) {
+                logWriter.outputIntervalHistogram(interval);
+            }
+        }
+
+        phase.running = false;
+        if (generator != null) {
+            generator.join();
+        }
+
+        // closed-loop clients count as outstanding until they notice the end of the phase
+        while (phase.outstanding.get() > 0) {
+            Thread.sleep(10);
+        }
+        interval = phase.recorder.getIntervalHistogram(interval);
+        phase.total.add(interval);
+        if (logWriter != null) {
+            logWriter.outputIntervalHistogram(interval);
+        }
+        return phase;
+    }
+
+    /*
+     * Issues transactions on a fixed schedule regardless of the completion of the previous
+     * ones. Each latency is measured from the scheduled start, which accounts for the time
+     * a transaction would have waited behind a stalled system (coordinated omission).
+     */
+    private void fixedRate(Phase phase, int rate) {
+        final long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        final long start = System.nanoTime();
+        long sent = 0;
+
+        while (phase.running) {
+            final long intendedStart = start + sent * interval;
+            final long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            phase.outstanding.incrementAndGet();
+            submit(phase, intendedStart).whenComplete((message, error) -> phase.outstanding.decrementAndGet());
+            sent++;
+        }
+    }
+
+    /*
+     * A client sending its next transaction as soon as the previous one completed.
+     */
+    private void closedLoop(Phase phase) {
+        if (!phase.running) {
+            phase.outstanding.decrementAndGet();
+            return;
+        }
+        submit(phase, System.nanoTime()).whenComplete((message, error) -> closedLoop(phase));
+    }
+
+    private CompletableFuture<ChaincodeMessage> submit(Phase phase, long startNanos) {
+        final Workload.Operation operation = workload.next();
+        final String txId = "tx-" + txIds.incrementAndGet();
+        final List<ByteString> arguments = workload.arguments(operation);
+
+        final CompletableFuture<ChaincodeMessage> completion = operation == Workload.Operation.INIT
+                ? peer.init(CHANNEL_ID, txId, arguments)
+                : peer.invoke(CHANNEL_ID, txId, arguments);
+
+        return completion.whenComplete((message, error) -> {
+            phase.recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+            if (error != null || message.getType() != ChaincodeMessage.Type.COMPLETED) {
+                phase.errors.incrementAndGet();
+            }
+        });
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options must be given as --name=value: " + arg);
+            }
+            final int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    /*
+     * The state of one warmup or measurement run. Transactions record into the phase that
+     * issued them, so late completions never leak into the next one.
+     */
+    private static class Phase {
+
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram total = new Histogram(3);
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong outstanding = new AtomicLong();
+        private volatile boolean running = true;
+    }
+}
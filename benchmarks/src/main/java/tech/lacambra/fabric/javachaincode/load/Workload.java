@@ -0,0 +1,106 @@
+package tech.lacambra.fabric.javachaincode.load;
+
+import com.google.protobuf.ByteString;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted mix of operations, parsed from a specification such as
+ * <code>read=80,write=15,scan=5</code>. Operations: <code>init</code>, <code>read</code>,
+ * <code>write</code> and <code>scan</code>. Keys are drawn uniformly from the seeded key space.
+ */
+class Workload {
+
+    enum Operation {
+        INIT, READ, WRITE, SCAN
+    }
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int keyCount;
+    private final int scanLength;
+    private final String value;
+
+    private Workload(Operation[] operations, int[] cumulativeWeights, int keyCount, int scanLength, int valueSize) {
+        this.operations = operations;
+        this.cumulativeWeights = cumulativeWeights;
+        this.keyCount = keyCount;
+        this.scanLength = scanLength;
+        this.value = String.join("", Collections.nCopies(valueSize, "x"));
+    }
+
+    static Workload parse(String specification, int keyCount, int scanLength, int valueSize) {
+        final List<Operation> operations = new ArrayList<>();
+        final List<Integer> weights = new ArrayList<>();
+        int total = 0;
+
+        for (String entry : specification.split(",")) {
+            final String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid workload entry: " + entry);
+            }
+            final int weight = Integer.parseInt(parts[1].trim());
+            if (weight <= 0) {
+                continue;
+            }
+            total += weight;
+            operations.add(Operation.valueOf(parts[0].trim().toUpperCase()));
+            weights.add(total);
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("Empty workload: " + specification);
+        }
+
+        return new Workload(operations.toArray(new Operation[0]), weights.stream().mapToInt(Integer::intValue).toArray(),
+                keyCount, scanLength, valueSize);
+    }
+
+    Operation next() {
+        final int draw = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    List<ByteString> arguments(Operation operation) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case READ:
+                return args("read", key(random.nextInt(keyCount)));
+            case WRITE:
+                return args("write", key(random.nextInt(keyCount)), value);
+            case SCAN:
+                final int start = random.nextInt(Math.max(keyCount - scanLength, 1));
+                return args("scan", key(start), key(start + scanLength));
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    void seed(Map<String, ByteString> state) {
+        final ByteString seededValue = ByteString.copyFromUtf8(value);
+        for (int i = 0; i < keyCount; i++) {
+            state.put(key(i), seededValue);
+        }
+    }
+
+    private static String key(int index) {
+        return String.format("key-%010d", index);
+    }
+
+    private static List<ByteString> args(String... args) {
+        final ByteString[] encoded = new ByteString[args.length];
+        for (int i = 0; i < args.length; i++) {
+            encoded[i] = ByteString.copyFromUtf8(args[i]);
+        }
+        return Arrays.asList(encoded);
+    }
+}
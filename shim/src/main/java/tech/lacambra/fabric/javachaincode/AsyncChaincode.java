@@ -0,0 +1,33 @@
+package tech.lacambra.fabric.javachaincode;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A chaincode written against the asynchronous contract. Implementations compose the
+ * futures returned by {@link AsyncChaincodeStub} instead of joining them, so no thread is
+ * parked while waiting for the peer and many transactions can share the same workers.
+ */
+public interface AsyncChaincode extends Chaincode {
+
+    @Override
+    CompletionStage<Response> initAsync(AsyncChaincodeStub stub);
+
+    @Override
+    CompletionStage<Response> invokeAsync(AsyncChaincodeStub stub);
+
+    /**
+     * Blocking bridge kept for callers of the synchronous contract. The shim never calls it.
+     */
+    @Override
+    default Response init(AsyncChaincodeStub stub) {
+        return initAsync(stub).toCompletableFuture().join();
+    }
+
+    /**
+     * Blocking bridge kept for callers of the synchronous contract. The shim never calls it.
+     */
+    @Override
+    default Response invoke(AsyncChaincodeStub stub) {
+        return invokeAsync(stub).toCompletableFuture().join();
+    }
+}
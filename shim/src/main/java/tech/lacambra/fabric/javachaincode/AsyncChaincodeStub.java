@@ -0,0 +1,507 @@
+package tech.lacambra.fabric.javachaincode;
+
+import org.hyperledger.fabric.protos.peer.ChaincodeEventPackage;
+import org.hyperledger.fabric.protos.peer.ProposalPackage;
+import org.reactivestreams.Publisher;
+import tech.lacambra.fabric.javachaincode.ledger.*;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncChaincodeStub {
+
+    /**
+     * Returns the arguments corresponding to the call to
+     * {@link Chaincode#init(AsyncChaincodeStub)} or
+     * {@link Chaincode#invoke(AsyncChaincodeStub)}.
+     *
+     * @return a list of arguments
+     */
+    List<byte[]> getArgs();
+
+    /**
+     * Returns the arguments corresponding to the call to
+     * {@link Chaincode#init(AsyncChaincodeStub)} or
+     * {@link Chaincode#invoke(AsyncChaincodeStub)}, without copying them.
+     *
+     * @return a list of read-only views of the arguments
+     */
+    List<ByteBuffer> getArgBuffers();
+
+    /**
+     * Returns the arguments corresponding to the call to
+     * {@link Chaincode#init(AsyncChaincodeStub)} or
+     * {@link Chaincode#invoke(AsyncChaincodeStub)}.
+     *
+     * @return a list of arguments cast to UTF-8 strings
+     */
+    List<String> getStringArgs();
+
+    /**
+     * A convenience method that returns the first argument of the chaincode
+     * invocation for use as a function name.
+     * <p>
+     * The bytes of the first argument are decoded as a UTF-8 string.
+     *
+     * @return the function name
+     */
+    String getFunction();
+
+    /**
+     * A convenience method that returns all except the first argument of the
+     * chaincode invocation for use as the parameters to the function returned
+     * by #{@link AsyncChaincodeStub#getFunction()}.
+     * <p>
+     * The bytes of the arguments are decoded as a UTF-8 strings and returned as
+     * a list of string parameters..
+     *
+     * @return a list of parameters
+     */
+    List<String> getParameters();
+
+    /**
+     * Returns the transaction id
+     *
+     * @return the transaction id
+     */
+    String getTxId();
+
+    /**
+     * Returns the channel id
+     *
+     * @return the channel id
+     */
+    String getChannelId();
+
+    /**
+     * Invoke another chaincode using the same transaction context.
+     *
+     * @param chaincodeName Name of chaincode to be invoked.
+     * @param args          Arguments to pass on to the called chaincode.
+     * @param channel       If not specified, the caller's channel is assumed.
+     * @return
+     */
+    CompletableFuture<Response> invokeChaincode(String chaincodeName, List<byte[]> args, String channel);
+
+    /**
+     * Returns the byte array value specified by the key, from the ledger.
+     *
+     * @param key name of the value
+     * @return value the value read from the ledger
+     */
+    CompletableFuture<byte[]> getState(String key);
+
+    /**
+     * Returns the value specified by the key, from the ledger, without copying it.
+     *
+     * @param key name of the value
+     * @return a read-only view of the value read from the ledger
+     */
+    CompletableFuture<ByteBuffer> getStateBuffer(String key);
+
+    /**
+     * Returns the values of several keys, from the ledger. All the reads are sent
+     * at once and duplicated keys are only read once.
+     *
+     * @param keys names of the values
+     * @return the values read from the ledger, by key and in the iteration order of <code>keys</code>
+     */
+    CompletableFuture<Map<String, byte[]>> getStates(Collection<String> keys);
+
+    /**
+     * Writes the specified value and key into the ledger
+     * <p>
+     * The entries of the {@link SecondaryIndex secondary indexes} covering the key are
+     * updated as well.
+     *
+     * @param key   name of the value
+     * @param value the value to write to the ledger
+     */
+    CompletableFuture<Response> putState(String key, byte[] value);
+
+    /**
+     * Writes the specified value and key into the ledger without copying the value.
+     * <p>
+     * The buffer is wrapped as is: its content must not be modified until the
+     * transaction completes.
+     *
+     * @param key   name of the value
+     * @param value the value to write to the ledger, from its position to its limit
+     * @return the response of the peer to the write, or an immediate success if writes are buffered
+     */
+    CompletableFuture<Response> putState(String key, ByteBuffer value);
+
+    /**
+     * Writes several keys and values into the ledger. All the writes are sent at once.
+     *
+     * @param values the values to write to the ledger, by key
+     * @return the first unsuccessful response, or a successful one if all the writes succeeded
+     */
+    CompletableFuture<Response> putStates(Map<String, byte[]> values);
+
+    /**
+     * Removes the specified key from the ledger, along with its entries in the
+     * {@link SecondaryIndex secondary indexes} covering it.
+     *
+     * @param key name of the value to be deleted
+     */
+    CompletableFuture<Response> delState(String key);
+
+    /**
+     * Returns the value of the specified key from the specified private data collection.
+     * <p>
+     * Reads are cached and writes buffered per collection, following the same options as
+     * the public state.
+     *
+     * @param collection name of the private data collection
+     * @param key        name of the value
+     * @return the value, empty if the key does not exist in the collection
+     */
+    CompletableFuture<byte[]> getPrivateData(String collection, String key);
+
+    /**
+     * Writes the specified value and key into the specified private data collection.
+     *
+     * @param collection name of the private data collection
+     * @param key        name of the value
+     * @param value      the value to write to the collection
+     */
+    CompletableFuture<Response> putPrivateData(String collection, String key, byte[] value);
+
+    /**
+     * Removes the specified key from the specified private data collection.
+     *
+     * @param collection name of the private data collection
+     * @param key        name of the value to be deleted
+     */
+    CompletableFuture<Response> delPrivateData(String collection, String key);
+
+    /**
+     * Returns all existing keys, and their values, of the specified private data collection
+     * that are lexicographically between <code>startkey</code> (inclusive) and the
+     * <code>endKey</code> (exclusive).
+     *
+     * @param collection name of the private data collection
+     * @param startKey
+     * @param endKey
+     * @return an {@link Iterable} of {@link KeyValue}
+     */
+    CompletableFuture<AsyncQueryResultsIterator<KeyValue>> getPrivateDataByRange(String collection, String startKey, String endKey);
+
+    /**
+     * Returns all existing keys, and their values, that are lexicographically
+     * between <code>startkey</code> (inclusive) and the <code>endKey</code>
+     * (exclusive).
+     * <p>
+     * The following pages of the result are fetched in the background while the
+     * current one is consumed, see {@link ChaincodeOptions#setQueryPrefetchDepth(int)}.
+     *
+     * @param startKey
+     * @param endKey
+     * @return an {@link Iterable} of {@link KeyValue}
+     */
+    CompletableFuture<AsyncQueryResultsIterator<KeyValue>> getStateByRange(String startKey, String endKey);
+
+    /**
+     * Streams all existing keys, and their values, that are lexicographically
+     * between <code>startkey</code> (inclusive) and the <code>endKey</code>
+     * (exclusive).
+     * <p>
+     * The query is started on the first request of the subscriber and the following
+     * pages are only fetched while there is outstanding demand. Cancelling the
+     * subscription closes the query.
+     *
+     * @param startKey
+     * @param endKey
+     * @return a single-subscriber {@link Publisher} of {@link KeyValue}
+     */
+    Publisher<KeyValue> getStateByRangePublisher(String startKey, String endKey);
+
+    /**
+     * Returns a bounded page of the keys, and their values, that are lexicographically
+     * between <code>startkey</code> (inclusive) and the <code>endKey</code>
+     * (exclusive).
+     * <p>
+     * The query is closed once the page is filled, so at most <code>pageSize</code>
+     * results are held in memory.
+     *
+     * @param startKey
+     * @param endKey
+     * @param pageSize the maximum number of results of the page
+     * @param bookmark the bookmark returned with the previous page, null or empty for the first page
+     * @return a {@link QueryResultsPage} of {@link KeyValue}
+     */
+    CompletableFuture<QueryResultsPage<KeyValue>> getStateByRangeWithPagination(String startKey, String endKey, int pageSize, String bookmark);
+
+    /**
+     * Returns all existing keys, and their values, that are prefixed by the
+     * specified partial {@link CompositeKey}.
+     * <p>
+     * If a full composite key is specified, it will not match itself, resulting
+     * in no keys being returned.
+     *
+     * <p>
+     * The query is a range scan from the partial key to the partial key followed by
+     * U+10FFFF. The key of each result is only split into its attributes when
+     * {@link CompositeKeyValue#getCompositeKey()} is called.
+     *
+     * @param compositeKey partial composite key
+     * @return an {@link Iterable} of {@link CompositeKeyValue}
+     */
+    CompletableFuture<AsyncQueryResultsIterator<CompositeKeyValue>> getStateByPartialCompositeKey(String compositeKey);
+
+    /**
+     * Returns all existing keys, and their values, that are prefixed by the
+     * specified partial {@link CompositeKey}.
+     *
+     * @param compositeKey partial composite key
+     * @return an {@link Iterable} of {@link CompositeKeyValue}
+     * @see #getStateByPartialCompositeKey(String)
+     */
+    CompletableFuture<AsyncQueryResultsIterator<CompositeKeyValue>> getStateByPartialCompositeKey(CompositeKey compositeKey);
+
+    /**
+     * Streams all existing keys, and their values, that are prefixed by the
+     * specified partial {@link CompositeKey}.
+     * <p>
+     * The query is started on the first request of the subscriber and the following
+     * pages are only fetched while there is outstanding demand. Cancelling the
+     * subscription closes the query.
+     *
+     * @param compositeKey partial composite key
+     * @return a single-subscriber {@link Publisher} of {@link CompositeKeyValue}
+     */
+    Publisher<CompositeKeyValue> getStateByPartialCompositeKeyPublisher(String compositeKey);
+
+    /**
+     * Given a set of attributes, this method combines these attributes to
+     * return a composite key.
+     *
+     * @param objectType
+     * @param attributes
+     * @return a composite key
+     * @throws CompositeKeyFormatException if any parameter contains either a U+000000 or U+10FFFF code
+     *                                     point.
+     */
+    CompositeKey createCompositeKey(String objectType, String... attributes);
+
+    /**
+     * Parses a composite key from a string.
+     *
+     * @param compositeKey a composite key string
+     * @return a composite key
+     */
+    CompositeKey splitCompositeKey(String compositeKey);
+
+    /**
+     * Perform a rich query against the state database.
+     *
+     * @param query query string in a syntax supported by the underlying state
+     *              database
+     * @return
+     * @throws UnsupportedOperationException if the underlying state database does not support rich
+     *                                       queries.
+     */
+    CompletableFuture<AsyncQueryResultsIterator<KeyValue>> getQueryResult(String query);
+
+    /**
+     * Streams the results of a rich query against the state database, fetching the
+     * pages on demand as in {@link #getStateByRangePublisher(String, String)}.
+     *
+     * @param query query string in a syntax supported by the underlying state
+     *              database
+     * @return a single-subscriber {@link Publisher} of {@link KeyValue}
+     */
+    Publisher<KeyValue> getQueryResultPublisher(String query);
+
+    /**
+     * Returns a bounded page of the results of a rich query against the state database.
+     * <p>
+     * The query must be a CouchDB JSON query. Its <code>limit</code> is replaced by the
+     * page size and the bookmark is added to its <code>skip</code>, so the state database
+     * never returns more than one page.
+     *
+     * @param query    CouchDB JSON query
+     * @param pageSize the maximum number of results of the page
+     * @param bookmark the bookmark returned with the previous page, null or empty for the first page
+     * @return a {@link QueryResultsPage} of {@link KeyValue}, failed with an
+     * {@link IllegalArgumentException} if the query is not a JSON object, its skip is not a
+     * non-negative integer or the bookmark is invalid
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    CompletableFuture<QueryResultsPage<KeyValue>> getQueryResultWithPagination(String query, int pageSize, String bookmark);
+
+    /**
+     * Returns the history of the specified key's values across time.
+     *
+     * @param key
+     * @return an {@link Iterable} of {@link KeyModification}
+     */
+    CompletableFuture<AsyncQueryResultsIterator<KeyModification>> getHistoryForKey(String key);
+
+    /**
+     * Streams the history of the specified key's values across time, fetching the
+     * pages on demand as in {@link #getStateByRangePublisher(String, String)}.
+     *
+     * @param key
+     * @return a single-subscriber {@link Publisher} of {@link KeyModification}
+     */
+    Publisher<KeyModification> getHistoryForKeyPublisher(String key);
+
+    /**
+     * Defines the CHAINCODE type event that will be posted to interested
+     * clients when the chaincode's result is committed to the ledger.
+     *
+     * @param name    Name of event. Cannot be null or empty string.
+     * @param payload Optional event payload.
+     */
+    void setEvent(String name, byte[] payload);
+
+    /**
+     * Invoke another chaincode using the same transaction context.
+     *
+     * @param chaincodeName Name of chaincode to be invoked.
+     * @param args          Arguments to pass on to the called chaincode.
+     * @return
+     */
+    CompletableFuture<Response> invokeChaincode(String chaincodeName, List<byte[]> args);
+
+    /**
+     * Invoke another chaincode using the same transaction context.
+     * <p>
+     * This is a convenience version of
+     * {@link #invokeChaincode(String, List, String)}. The string args will be
+     * encoded into as UTF-8 bytes.
+     *
+     * @param chaincodeName Name of chaincode to be invoked.
+     * @param args          Arguments to pass on to the called chaincode.
+     * @param channel       If not specified, the caller's channel is assumed.
+     * @return
+     */
+    CompletableFuture<Response> invokeChaincodeWithStringArgs(String chaincodeName, List<String> args, String channel);
+
+    /**
+     * Invoke another chaincode using the same transaction context.
+     * <p>
+     * This is a convenience version of {@link #invokeChaincode(String, List)}.
+     * The string args will be encoded into as UTF-8 bytes.
+     *
+     * @param chaincodeName Name of chaincode to be invoked.
+     * @param args          Arguments to pass on to the called chaincode.
+     * @return
+     */
+    CompletableFuture<Response> invokeChaincodeWithStringArgs(String chaincodeName, List<String> args);
+
+    /**
+     * Invoke another chaincode using the same transaction context.
+     * <p>
+     * This is a convenience version of {@link #invokeChaincode(String, List)}.
+     * The string args will be encoded into as UTF-8 bytes.
+     *
+     * @param chaincodeName Name of chaincode to be invoked.
+     * @param args          Arguments to pass on to the called chaincode.
+     * @return
+     */
+    CompletableFuture<Response> invokeChaincodeWithStringArgs(final String chaincodeName, final String... args);
+
+    /**
+     * Invokes several chaincodes using the same transaction context. All the invocations are
+     * sent at once, they run concurrently as far as the pipeline window of the transaction
+     * allows, see {@link ChaincodeOptions#setPipelineWindow(int)}.
+     *
+     * @param invocations the chaincodes to call, the same chaincode possibly several times
+     * @return the responses, in the order of <code>invocations</code>
+     */
+    CompletableFuture<List<Response>> invokeChaincodeAll(List<ChaincodeInvocation> invocations);
+
+    /**
+     * Invokes a read-only function of another chaincode using the same transaction context.
+     * <p>
+     * A successful response is memoised for the lifetime of the transaction: invoking the
+     * same chaincode with the same arguments again returns it without calling the peer.
+     * Failures are not kept, so a later query can try again. Only use it for functions that
+     * do not write to the ledger.
+     *
+     * @param chaincodeName Name of chaincode to be invoked.
+     * @param args          Arguments to pass on to the called chaincode.
+     * @param channel       If not specified, the caller's channel is assumed.
+     * @return
+     */
+    CompletableFuture<Response> queryChaincode(String chaincodeName, List<byte[]> args, String channel);
+
+    /**
+     * Returns the byte array value specified by the key and decoded as a UTF-8
+     * encoded string, from the ledger.
+     *
+     * @param key name of the value
+     * @return value the value read from the ledger
+     */
+    CompletableFuture<Response> getStringState(String key);
+
+    /**
+     * Writes the specified value and key into the ledger
+     * <p>
+     * The entries of the {@link SecondaryIndex secondary indexes} covering the key are
+     * updated as well.
+     *
+     * @param key   name of the value
+     * @param value the value to write to the ledger
+     */
+    CompletableFuture<Response> putStringState(String key, String value);
+
+    /**
+     * Returns the CHAINCODE type event that will be posted to interested
+     * clients when the chaincode's result is committed to the ledger.
+     *
+     * @return the chaincode event or null
+     */
+    ChaincodeEventPackage.ChaincodeEvent getEvent();
+
+    /**
+     * Returns the signed transaction proposal currently being executed.
+     *
+     * @return null if the current transaction is an internal call to a system
+     * chaincode.
+     */
+    ProposalPackage.SignedProposal getSignedProposal();
+
+    /**
+     * Returns the timestamp when the transaction was created.
+     *
+     * @return timestamp as specified in the transaction's channel header.
+     */
+    Instant getTxTimestamp();
+
+    /**
+     * Returns the identity of the agent (or user) submitting the transaction.
+     *
+     * @return the bytes of the creator field of the proposal's signature
+     * header.
+     */
+    byte[] getCreator();
+
+    /**
+     * Returns the parsed identity of the agent (or user) submitting the transaction.
+     * Identities are cached by creator, so repeated calls for the same client are cheap.
+     *
+     * @return the client identity, or null if the current transaction has no proposal
+     */
+    ClientIdentity getClientIdentity();
+
+    /**
+     * Returns the transient map associated with the current transaction.
+     *
+     * @return
+     */
+    Map<String, byte[]> getTransient();
+
+    /**
+     * Returns the transaction binding.
+     */
+    byte[] getBinding();
+
+}
@@ -0,0 +1,810 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import org.hyperledger.fabric.protos.ledger.queryresult.KvQueryResult;
+import org.hyperledger.fabric.protos.peer.ChaincodeEventPackage;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResultBytes;
+import org.hyperledger.fabric.protos.peer.ProposalPackage;
+import org.reactivestreams.Publisher;
+import tech.lacambra.fabric.javachaincode.ledger.AsyncQueryResultsIterator;
+import tech.lacambra.fabric.javachaincode.ledger.CompositeKey;
+import tech.lacambra.fabric.javachaincode.ledger.CompositeKeyValue;
+import tech.lacambra.fabric.javachaincode.ledger.KeyModification;
+import tech.lacambra.fabric.javachaincode.ledger.KeyValue;
+import tech.lacambra.fabric.javachaincode.ledger.QueryResultsPage;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+public class AsyncChaincodeStubImpl implements AsyncChaincodeStub {
+
+    private static final String UNSPECIFIED_KEY = new String(Character.toChars(0x000001));
+    private static final String MAX_UNICODE_RUNE = new String(Character.toChars(Character.MAX_CODE_POINT));
+    private static final String MIN_UNICODE_RUNE = new String(Character.toChars(Character.MIN_CODE_POINT));
+    private static final String COMPOSITE_KEY_NAMESPACE = MIN_UNICODE_RUNE;
+    private static final Response BUFFERED_WRITE_RESPONSE = new Response(Response.Status.SUCCESS, null, null);
+    private final String channelId;
+    private final String txId;
+    private final PeerMessageHandler handler;
+    private final List<ByteString> args;
+    private final LazyProposal proposal;
+    private final ClientIdentityCache clientIdentities;
+    private final WriteSet writeSet;
+    private final ReadCache readCache;
+    private final ConcurrentMap<String, WriteSet> privateWriteSets;
+    private final ConcurrentMap<String, ReadCache> privateReadCaches;
+    private final int queryPrefetchDepth;
+    private final ConcurrentMap<ChaincodeQuery, CompletableFuture<Response>> chaincodeQueries;
+    private final List<SecondaryIndex> secondaryIndexes;
+    private final ConcurrentMap<String, CompletableFuture<ByteString>> indexedValues;
+    private volatile List<String> stringArgs;
+    private ChaincodeEventPackage.ChaincodeEvent event;
+
+    AsyncChaincodeStubImpl(String channelId, String txId, PeerMessageHandler handler, List<ByteString> args, ProposalPackage.SignedProposal signedProposal) {
+        this(channelId, txId, handler, args, signedProposal, new ChaincodeOptions(), new ClientIdentityCache(ChaincodeOptions.DEFAULT_CLIENT_IDENTITY_CACHE_SIZE));
+    }
+
+    AsyncChaincodeStubImpl(String channelId, String txId, PeerMessageHandler handler, List<ByteString> args, ProposalPackage.SignedProposal signedProposal,
+                           ChaincodeOptions options, ClientIdentityCache clientIdentities) {
+        this.channelId = channelId;
+        this.txId = txId;
+        this.handler = handler;
+        this.args = Collections.unmodifiableList(args);
+        this.proposal = signedProposal == null ? null : new LazyProposal(signedProposal);
+        if (proposal != null) {
+            proposal.validate();
+        }
+        this.clientIdentities = clientIdentities;
+        this.writeSet = options.isBufferWrites() ? new WriteSet() : null;
+        this.readCache = options.isCacheReads() ? new ReadCache() : null;
+        this.privateWriteSets = new ConcurrentHashMap<>();
+        this.privateReadCaches = new ConcurrentHashMap<>();
+        this.queryPrefetchDepth = options.getQueryPrefetchDepth();
+        this.chaincodeQueries = new ConcurrentHashMap<>();
+        this.secondaryIndexes = options.getSecondaryIndexes();
+        this.indexedValues = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public List<byte[]> getArgs() {
+        return args.stream().map(ByteString::toByteArray).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ByteBuffer> getArgBuffers() {
+        return args.stream().map(ByteString::asReadOnlyByteBuffer).collect(Collectors.toList());
+    }
+
+    /*
+     * The arguments are decoded once, on first access. Concurrent first calls may both
+     * decode them, which is harmless as the resulting lists are immutable and equal.
+     */
+    @Override
+    public List<String> getStringArgs() {
+        List<String> decoded = stringArgs;
+        if (decoded == null) {
+            final List<String> strings = new ArrayList<>(args.size());
+            for (ByteString arg : args) {
+                strings.add(arg.toStringUtf8());
+            }
+            decoded = Collections.unmodifiableList(strings);
+            stringArgs = decoded;
+        }
+        return decoded;
+    }
+
+    @Override
+    public String getFunction() {
+        final List<String> stringArgs = getStringArgs();
+        return stringArgs.isEmpty() ? null : stringArgs.get(0);
+    }
+
+    @Override
+    public List<String> getParameters() {
+        final List<String> stringArgs = getStringArgs();
+        return stringArgs.isEmpty() ? Collections.emptyList() : stringArgs.subList(1, stringArgs.size());
+    }
+
+    @Override
+    public String getTxId() {
+        return txId;
+    }
+
+    @Override
+    public String getChannelId() {
+        return channelId;
+    }
+
+    @Override
+    public CompletableFuture<Response> invokeChaincode(String chaincodeName, List<byte[]> args, String channel) {
+        return handler.invokeChaincode(this.channelId, this.txId, compositeChaincodeName(chaincodeName, channel), args);
+    }
+
+    @Override
+    public CompletableFuture<List<Response>> invokeChaincodeAll(List<ChaincodeInvocation> invocations) {
+        final List<CompletableFuture<Response>> responses = new ArrayList<>(invocations.size());
+        for (ChaincodeInvocation invocation : invocations) {
+            responses.add(invokeChaincode(invocation.getChaincodeName(), invocation.getArgs(), invocation.getChannel()));
+        }
+        return CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).thenApply(done -> {
+            final List<Response> results = new ArrayList<>(responses.size());
+            responses.forEach(response -> results.add(response.join()));
+            return results;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Response> queryChaincode(String chaincodeName, List<byte[]> args, String channel) {
+        final List<ByteString> copiedArgs = new ArrayList<>(args.size());
+        for (byte[] arg : args) {
+            copiedArgs.add(ByteString.copyFrom(arg));
+        }
+        final ChaincodeQuery query = new ChaincodeQuery(compositeChaincodeName(chaincodeName, channel), copiedArgs);
+
+        CompletableFuture<Response> cached = chaincodeQueries.get(query);
+        if (cached != null) {
+            return cached;
+        }
+
+        final CompletableFuture<Response> response = new CompletableFuture<>();
+        cached = chaincodeQueries.putIfAbsent(query, response);
+        if (cached != null) {
+            return cached;
+        }
+
+        handler.invokeChaincodeWithArgs(channelId, txId, query.chaincodeName, query.args).whenComplete((result, error) -> {
+            if (error != null || result.getStatus() != Response.Status.SUCCESS) {
+                // do not keep failures, a later query can try again
+                chaincodeQueries.remove(query, response);
+            }
+            if (error != null) {
+                response.completeExceptionally(error);
+            } else {
+                response.complete(result);
+            }
+        });
+        return response;
+    }
+
+    private static String compositeChaincodeName(String chaincodeName, String channel) {
+        if (channel != null && channel.trim().length() > 0) {
+            return chaincodeName + "/" + channel;
+        }
+        return chaincodeName;
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getState(String key) {
+        return readState(key).thenApply(ByteString::toByteArray);
+    }
+
+    @Override
+    public CompletableFuture<ByteBuffer> getStateBuffer(String key) {
+        return readState(key).thenApply(ByteString::asReadOnlyByteBuffer);
+    }
+
+    private CompletableFuture<ByteString> readState(String key) {
+        if (writeSet != null && writeSet.contains(key)) {
+            return CompletableFuture.completedFuture(writeSet.get(key));
+        }
+        if (readCache != null) {
+            return readCache.get(key, k -> handler.getState(channelId, txId, k));
+        }
+        return handler.getState(channelId, txId, key);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, byte[]>> getStates(Collection<String> keys) {
+        final Map<String, ByteString> buffered = new HashMap<>();
+        final List<String> remoteKeys = new ArrayList<>(keys.size());
+
+        for (String key : keys) {
+            if (writeSet != null && writeSet.contains(key)) {
+                buffered.put(key, writeSet.get(key));
+            } else {
+                remoteKeys.add(key);
+            }
+        }
+
+        final CompletableFuture<Map<String, ByteString>> remoteValues = readCache != null
+                ? PeerMessageHandler.allOf(readCache.getAll(remoteKeys, missing -> handler.getStates(channelId, txId, missing)))
+                : handler.getStates(channelId, txId, remoteKeys);
+
+        return remoteValues.thenApply(values -> {
+            final Map<String, byte[]> states = new LinkedHashMap<>(keys.size() * 4 / 3 + 1);
+            for (String key : keys) {
+                final ByteString value = buffered.containsKey(key) ? buffered.get(key) : values.get(key);
+                states.put(key, value != null ? value.toByteArray() : new byte[0]);
+            }
+            return states;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Response> putState(String key, byte[] value) {
+        validateKey(key);
+        final ByteString bytes = ByteString.copyFrom(value);
+        return writeIndexed(key, bytes, () -> writeState(key, bytes));
+    }
+
+    @Override
+    public CompletableFuture<Response> putState(String key, ByteBuffer value) {
+        validateKey(key);
+        final ByteString bytes = UnsafeByteOperations.unsafeWrap(value);
+        return writeIndexed(key, bytes, () -> writeState(key, bytes));
+    }
+
+    private CompletableFuture<Response> writeState(String key, ByteString value) {
+        if (readCache != null) {
+            readCache.invalidate(key);
+        }
+        if (writeSet != null) {
+            writeSet.put(key, value);
+            return CompletableFuture.completedFuture(BUFFERED_WRITE_RESPONSE);
+        }
+        return handler.putState(channelId, txId, key, value);
+    }
+
+    @Override
+    public CompletableFuture<Response> putStates(Map<String, byte[]> values) {
+        final Map<String, ByteString> writes = new LinkedHashMap<>(values.size() * 4 / 3 + 1);
+        values.forEach((key, value) -> {
+            validateKey(key);
+            writes.put(key, ByteString.copyFrom(value));
+        });
+
+        final List<CompletableFuture<Response>> indexedWrites = new ArrayList<>();
+        if (!secondaryIndexes.isEmpty()) {
+            // indexed keys are written one by one, each after reading its previous value
+            final Iterator<Map.Entry<String, ByteString>> iterator = writes.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<String, ByteString> write = iterator.next();
+                final String key = write.getKey();
+                final ByteString value = write.getValue();
+                if (isIndexed(key)) {
+                    indexedWrites.add(writeIndexed(key, value, () -> writeState(key, value)));
+                    iterator.remove();
+                }
+            }
+        }
+
+        if (readCache != null) {
+            writes.keySet().forEach(readCache::invalidate);
+        }
+        final CompletableFuture<Response> batch;
+        if (writeSet != null) {
+            writes.forEach(writeSet::put);
+            batch = CompletableFuture.completedFuture(BUFFERED_WRITE_RESPONSE);
+        } else {
+            batch = handler.putStates(channelId, txId, writes);
+        }
+
+        if (indexedWrites.isEmpty()) {
+            return batch;
+        }
+        indexedWrites.add(batch);
+        return PeerMessageHandler.firstFailure(indexedWrites);
+    }
+
+    @Override
+    public CompletableFuture<Response> delState(String key) {
+        return writeIndexed(key, null, () -> removeState(key));
+    }
+
+    private CompletableFuture<Response> removeState(String key) {
+        if (readCache != null) {
+            readCache.invalidate(key);
+        }
+        if (writeSet != null) {
+            writeSet.delete(key);
+            return CompletableFuture.completedFuture(BUFFERED_WRITE_RESPONSE);
+        }
+        return handler.deleteState(channelId, txId, key);
+    }
+
+    private boolean isIndexed(String key) {
+        for (SecondaryIndex secondaryIndex : secondaryIndexes) {
+            if (secondaryIndex.covers(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Runs the given write of an indexed key once the index entries of its previous value have
+     * been replaced by the ones of the new value, a null value standing for a delete. Entries
+     * that are the same for both values are left untouched.
+     *
+     * The peer does not return the writes of the running transaction, so the previous value is
+     * the last one this transaction wrote to the key, or the ledger value for the first write.
+     * Writes to the same indexed key are chained in call order.
+     */
+    private CompletableFuture<Response> writeIndexed(String key, ByteString value, Supplier<CompletableFuture<Response>> write) {
+        if (!isIndexed(key)) {
+            return write.get();
+        }
+
+        final ByteString written = value == null ? ByteString.EMPTY : value;
+        final CompletableFuture<ByteString> current = new CompletableFuture<>();
+        final CompletableFuture<ByteString> previous = indexedValues.put(key, current);
+
+        final CompletableFuture<Response> response = (previous != null ? previous : readState(key))
+                .thenCompose(previousValue -> replaceEntries(key, previousValue, written, write)
+                        .whenComplete((result, error) -> {
+                            if (error == null) {
+                                current.complete(result.getStatus() == Response.Status.SUCCESS ? written : previousValue);
+                            }
+                        }));
+
+        response.whenComplete((result, error) -> {
+            if (error != null) {
+                current.completeExceptionally(error);
+            }
+        });
+        return response;
+    }
+
+    private CompletableFuture<Response> replaceEntries(String key, ByteString previous, ByteString value, Supplier<CompletableFuture<Response>> write) {
+        final byte[] previousValue = previous.isEmpty() ? null : previous.toByteArray();
+        final byte[] newValue = value.isEmpty() ? null : value.toByteArray();
+        final List<CompletableFuture<Response>> writes = new ArrayList<>();
+
+        for (SecondaryIndex secondaryIndex : secondaryIndexes) {
+            if (!secondaryIndex.covers(key)) {
+                continue;
+            }
+            final String previousEntry = secondaryIndex.entryKey(key, previousValue);
+            final String newEntry = secondaryIndex.entryKey(key, newValue);
+            if (Objects.equals(previousEntry, newEntry)) {
+                continue;
+            }
+            if (previousEntry != null) {
+                writes.add(removeState(previousEntry));
+            }
+            if (newEntry != null) {
+                writes.add(writeState(newEntry, SecondaryIndex.ENTRY_VALUE));
+            }
+        }
+
+        writes.add(write.get());
+        return PeerMessageHandler.firstFailure(writes);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getPrivateData(String collection, String key) {
+        validateCollection(collection);
+        return readPrivateState(collection, key).thenApply(ByteString::toByteArray);
+    }
+
+    private CompletableFuture<ByteString> readPrivateState(String collection, String key) {
+        final WriteSet privateWriteSet = privateWriteSet(collection);
+        if (privateWriteSet != null && privateWriteSet.contains(key)) {
+            return CompletableFuture.completedFuture(privateWriteSet.get(key));
+        }
+        final ReadCache privateReadCache = privateReadCache(collection);
+        if (privateReadCache != null) {
+            return privateReadCache.get(key, k -> handler.getState(channelId, txId, collection, k));
+        }
+        return handler.getState(channelId, txId, collection, key);
+    }
+
+    @Override
+    public CompletableFuture<Response> putPrivateData(String collection, String key, byte[] value) {
+        validateCollection(collection);
+        validateKey(key);
+        final ReadCache privateReadCache = privateReadCache(collection);
+        if (privateReadCache != null) {
+            privateReadCache.invalidate(key);
+        }
+        final WriteSet privateWriteSet = privateWriteSet(collection);
+        if (privateWriteSet != null) {
+            privateWriteSet.put(key, ByteString.copyFrom(value));
+            return CompletableFuture.completedFuture(BUFFERED_WRITE_RESPONSE);
+        }
+        return handler.putState(channelId, txId, collection, key, ByteString.copyFrom(value));
+    }
+
+    @Override
+    public CompletableFuture<Response> delPrivateData(String collection, String key) {
+        validateCollection(collection);
+        final ReadCache privateReadCache = privateReadCache(collection);
+        if (privateReadCache != null) {
+            privateReadCache.invalidate(key);
+        }
+        final WriteSet privateWriteSet = privateWriteSet(collection);
+        if (privateWriteSet != null) {
+            privateWriteSet.delete(key);
+            return CompletableFuture.completedFuture(BUFFERED_WRITE_RESPONSE);
+        }
+        return handler.deleteState(channelId, txId, collection, key);
+    }
+
+    @Override
+    public CompletableFuture<AsyncQueryResultsIterator<KeyValue>> getPrivateDataByRange(String collection, String startKey, String endKey) {
+        validateCollection(collection);
+        if (startKey == null || startKey.isEmpty()) startKey = UNSPECIFIED_KEY;
+        if (endKey == null || endKey.isEmpty()) endKey = UNSPECIFIED_KEY;
+
+        return handler.getStateByRange(channelId, txId, collection, startKey, endKey)
+                .thenApply(queryResponse -> new QueryResultsIteratorImpl<KeyValue>(this.handler, channelId, txId,
+                        queryResponse, AsyncChaincodeStubImpl::toKeyValue, queryPrefetchDepth));
+    }
+
+    /*
+     * Private data is cached and buffered per collection, following the options of the
+     * public state.
+     */
+    private WriteSet privateWriteSet(String collection) {
+        return writeSet == null ? null : privateWriteSets.computeIfAbsent(collection, WriteSet::new);
+    }
+
+    private ReadCache privateReadCache(String collection) {
+        return readCache == null ? null : privateReadCaches.computeIfAbsent(collection, c -> new ReadCache());
+    }
+
+    /*
+     * Sends the buffered write sets to the peer. Called by the dispatcher right before the
+     * COMPLETED message of the transaction, which becomes an ERROR if a write is rejected.
+     */
+    CompletableFuture<Response> flushWrites() {
+        if (writeSet == null) {
+            return CompletableFuture.completedFuture(BUFFERED_WRITE_RESPONSE);
+        }
+        if (privateWriteSets.isEmpty()) {
+            return writeSet.flush(handler, channelId, txId);
+        }
+
+        final List<CompletableFuture<Response>> flushes = new ArrayList<>(privateWriteSets.size() + 1);
+        flushes.add(writeSet.flush(handler, channelId, txId));
+        privateWriteSets.values().forEach(privateWriteSet -> flushes.add(privateWriteSet.flush(handler, channelId, txId)));
+        return PeerMessageHandler.firstFailure(flushes);
+    }
+
+    @Override
+    public CompletableFuture<AsyncQueryResultsIterator<KeyValue>> getStateByRange(String startKey, String endKey) {
+        if (startKey == null || startKey.isEmpty()) startKey = UNSPECIFIED_KEY;
+        if (endKey == null || endKey.isEmpty()) endKey = UNSPECIFIED_KEY;
+
+        return handler.getStateByRange(getChannelId(), getTxId(), startKey, endKey)
+                .thenApply(queryResponse -> new QueryResultsIteratorImpl<KeyValue>(this.handler, getChannelId(), getTxId(),
+                        queryResponse, AsyncChaincodeStubImpl::toKeyValue, queryPrefetchDepth));
+    }
+
+    @Override
+    public Publisher<KeyValue> getStateByRangePublisher(String startKey, String endKey) {
+        final String start = startKey == null || startKey.isEmpty() ? UNSPECIFIED_KEY : startKey;
+        final String end = endKey == null || endKey.isEmpty() ? UNSPECIFIED_KEY : endKey;
+
+        return new QueryResultsPublisher<>(handler, channelId, txId,
+                () -> handler.getStateByRange(channelId, txId, start, end), AsyncChaincodeStubImpl::toKeyValue);
+    }
+
+    /*
+     * The bookmark of a range page is the key right after the last key of the previous page.
+     */
+    @Override
+    public CompletableFuture<QueryResultsPage<KeyValue>> getStateByRangeWithPagination(String startKey, String endKey, int pageSize, String bookmark) {
+        validatePageSize(pageSize);
+        if (bookmark != null && !bookmark.isEmpty()) startKey = bookmark;
+        if (startKey == null || startKey.isEmpty()) startKey = UNSPECIFIED_KEY;
+        if (endKey == null || endKey.isEmpty()) endKey = UNSPECIFIED_KEY;
+
+        return QueryResultsPageImpl.collect(handler, channelId, txId, handler.getStateByRange(channelId, txId, startKey, endKey),
+                AsyncChaincodeStubImpl::toKeyValue, pageSize, last -> last.getKey() + MIN_UNICODE_RUNE);
+    }
+
+    @Override
+    public CompletableFuture<AsyncQueryResultsIterator<CompositeKeyValue>> getStateByPartialCompositeKey(String compositeKey) {
+        final String startKey = partialCompositeKeyStart(compositeKey);
+
+        return handler.getStateByRange(channelId, txId, startKey, startKey + MAX_UNICODE_RUNE)
+                .thenApply(queryResponse -> new QueryResultsIteratorImpl<CompositeKeyValue>(this.handler, channelId, txId,
+                        queryResponse, AsyncChaincodeStubImpl::toCompositeKeyValue, queryPrefetchDepth));
+    }
+
+    @Override
+    public CompletableFuture<AsyncQueryResultsIterator<CompositeKeyValue>> getStateByPartialCompositeKey(CompositeKey compositeKey) {
+        return getStateByPartialCompositeKey(compositeKey == null ? null : compositeKey.toString());
+    }
+
+    @Override
+    public Publisher<CompositeKeyValue> getStateByPartialCompositeKeyPublisher(String compositeKey) {
+        final String startKey = partialCompositeKeyStart(compositeKey);
+
+        return new QueryResultsPublisher<>(handler, channelId, txId,
+                () -> handler.getStateByRange(channelId, txId, startKey, startKey + MAX_UNICODE_RUNE), AsyncChaincodeStubImpl::toCompositeKeyValue);
+    }
+
+    /*
+     * An empty partial key scans the whole composite key namespace.
+     */
+    private static String partialCompositeKeyStart(String compositeKey) {
+        return compositeKey == null || compositeKey.isEmpty() ? COMPOSITE_KEY_NAMESPACE : compositeKey;
+    }
+
+    @Override
+    public CompositeKey createCompositeKey(String objectType, String... attributes) {
+        return new CompositeKey(objectType, attributes);
+    }
+
+    @Override
+    public CompositeKey splitCompositeKey(String compositeKey) {
+        return CompositeKey.parseCompositeKey(compositeKey);
+    }
+
+    @Override
+    public CompletableFuture<AsyncQueryResultsIterator<KeyValue>> getQueryResult(String query) {
+        return handler.getQueryResult(channelId, txId, query)
+                .thenApply(queryResponse -> new QueryResultsIteratorImpl<KeyValue>(this.handler, channelId, txId,
+                        queryResponse, AsyncChaincodeStubImpl::toKeyValue, queryPrefetchDepth));
+    }
+
+    @Override
+    public Publisher<KeyValue> getQueryResultPublisher(String query) {
+        return new QueryResultsPublisher<>(handler, channelId, txId,
+                () -> handler.getQueryResult(channelId, txId, query), AsyncChaincodeStubImpl::toKeyValue);
+    }
+
+    /*
+     * The bookmark of a rich query page is the number of results skipped so far. One result
+     * more than the page size is requested to know whether another page follows.
+     */
+    @Override
+    public CompletableFuture<QueryResultsPage<KeyValue>> getQueryResultWithPagination(String query, int pageSize, String bookmark) {
+        validatePageSize(pageSize);
+        final int offset;
+        final JsonObject pagedQuery;
+        try {
+            offset = parseBookmark(bookmark);
+            pagedQuery = pagedQuery(query, offset, pageSize);
+        } catch (IllegalArgumentException e) {
+            final CompletableFuture<QueryResultsPage<KeyValue>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        return QueryResultsPageImpl.collect(handler, channelId, txId, handler.getQueryResult(channelId, txId, pagedQuery.encode()),
+                AsyncChaincodeStubImpl::toKeyValue, pageSize, last -> String.valueOf(offset + pageSize));
+    }
+
+    private static int parseBookmark(String bookmark) {
+        if (bookmark == null || bookmark.isEmpty()) {
+            return 0;
+        }
+        final int offset;
+        try {
+            offset = Integer.parseInt(bookmark);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid bookmark: " + bookmark, e);
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("Invalid bookmark: " + bookmark);
+        }
+        return offset;
+    }
+
+    /*
+     * The skip of the query, if any, is kept and the bookmark added to it. JSON numbers are
+     * decoded as Integer or Long, anything else is not a valid skip.
+     */
+    private static JsonObject pagedQuery(String query, int offset, int pageSize) {
+        final JsonObject pagedQuery;
+        try {
+            pagedQuery = new JsonObject(query);
+        } catch (DecodeException e) {
+            throw new IllegalArgumentException("The query must be a JSON object", e);
+        }
+        final Object skip = pagedQuery.getValue("skip");
+        final long querySkip;
+        if (skip == null) {
+            querySkip = 0;
+        } else if (skip instanceof Integer || skip instanceof Long) {
+            querySkip = ((Number) skip).longValue();
+        } else {
+            throw new IllegalArgumentException("The skip of the query must be an integer: " + skip);
+        }
+        if (querySkip < 0 || querySkip + offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid skip: " + skip);
+        }
+        pagedQuery.put("skip", (int) querySkip + offset);
+        pagedQuery.put("limit", pageSize + 1);
+        return pagedQuery;
+    }
+
+    @Override
+    public CompletableFuture<AsyncQueryResultsIterator<KeyModification>> getHistoryForKey(String key) {
+        return handler.getHistoryForKey(channelId, txId, key)
+                .thenApply(queryResponse -> new QueryResultsIteratorImpl<KeyModification>(this.handler, channelId, txId,
+                        queryResponse, AsyncChaincodeStubImpl::toKeyModification, queryPrefetchDepth));
+    }
+
+    @Override
+    public Publisher<KeyModification> getHistoryForKeyPublisher(String key) {
+        return new QueryResultsPublisher<>(handler, channelId, txId,
+                () -> handler.getHistoryForKey(channelId, txId, key), AsyncChaincodeStubImpl::toKeyModification);
+    }
+
+    @Override
+    public void setEvent(String name, byte[] payload) {
+        if (name == null || name.trim().length() == 0) {
+            throw new IllegalArgumentException("Event name cannot be null or empty string.");
+        }
+        if (payload != null) {
+            this.event = ChaincodeEventPackage.ChaincodeEvent.newBuilder()
+                    .setEventName(name)
+                    .setPayload(ByteString.copyFrom(payload))
+                    .build();
+        } else {
+            this.event = ChaincodeEventPackage.ChaincodeEvent.newBuilder()
+                    .setEventName(name)
+                    .build();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> invokeChaincode(String chaincodeName, List<byte[]> args) {
+        return invokeChaincode(chaincodeName, args, null);
+    }
+
+    @Override
+    public CompletableFuture<Response> invokeChaincodeWithStringArgs(String chaincodeName, List<String> args, String channel) {
+        final List<ByteString> encodedArgs = new ArrayList<>(args.size());
+        for (String arg : args) {
+            encodedArgs.add(ByteString.copyFromUtf8(arg));
+        }
+        return handler.invokeChaincodeWithArgs(channelId, txId, compositeChaincodeName(chaincodeName, channel), encodedArgs);
+    }
+
+    @Override
+    public CompletableFuture<Response> invokeChaincodeWithStringArgs(String chaincodeName, List<String> args) {
+        return invokeChaincodeWithStringArgs(chaincodeName, args, null);
+    }
+
+    @Override
+    public CompletableFuture<Response> invokeChaincodeWithStringArgs(String chaincodeName, String... args) {
+        return invokeChaincodeWithStringArgs(chaincodeName, Arrays.asList(args), null);
+    }
+
+    @Override
+    public CompletableFuture<Response> getStringState(String key) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Response> putStringState(String key, String value) {
+        return null;
+    }
+
+    @Override
+    public ChaincodeEventPackage.ChaincodeEvent getEvent() {
+        return event;
+    }
+
+    @Override
+    public ProposalPackage.SignedProposal getSignedProposal() {
+        return proposal == null ? null : proposal.getSignedProposal();
+    }
+
+    @Override
+    public Instant getTxTimestamp() {
+        return proposal == null ? null : proposal.getTxTimestamp();
+    }
+
+    @Override
+    public byte[] getCreator() {
+        return proposal == null ? null : proposal.getCreator().toByteArray();
+    }
+
+    @Override
+    public ClientIdentity getClientIdentity() {
+        return proposal == null ? null : clientIdentities.get(proposal.getCreator());
+    }
+
+    @Override
+    public Map<String, byte[]> getTransient() {
+        if (proposal == null) {
+            return Collections.emptyMap();
+        }
+        final Map<String, ByteString> transientMap = proposal.getTransientMap();
+        final Map<String, byte[]> values = new HashMap<>(transientMap.size() * 4 / 3 + 1);
+        transientMap.forEach((key, value) -> values.put(key, value.toByteArray()));
+        return values;
+    }
+
+    @Override
+    public byte[] getBinding() {
+        return proposal == null ? null : proposal.getBinding();
+    }
+
+    private static KeyValue toKeyValue(QueryResultBytes queryResultBytes) {
+        try {
+            return new KeyValueImpl(KvQueryResult.KV.parseFrom(queryResultBytes.getResultBytes()));
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static CompositeKeyValue toCompositeKeyValue(QueryResultBytes queryResultBytes) {
+        try {
+            return new CompositeKeyValueImpl(KvQueryResult.KV.parseFrom(queryResultBytes.getResultBytes()));
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static KeyModification toKeyModification(QueryResultBytes queryResultBytes) {
+        try {
+            return new KeyModificationImpl(KvQueryResult.KeyModification.parseFrom(queryResultBytes.getResultBytes()));
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void validateCollection(String collection) {
+        if (collection == null || collection.isEmpty()) {
+            throw new IllegalArgumentException("collection cannot be null or empty");
+        }
+    }
+
+    private static void validatePageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be greater than 0");
+        }
+    }
+
+    private void validateKey(String key) {
+        if (key == null) {
+            throw new NullPointerException("key cannot be null");
+        }
+        if (key.length() == 0) {
+            throw new IllegalArgumentException("key cannot not be an empty string");
+        }
+    }
+
+    /*
+     * Memo key of queryChaincode: the invoked chaincode and its arguments.
+     */
+    private static final class ChaincodeQuery {
+
+        private final String chaincodeName;
+        private final List<ByteString> args;
+
+        private ChaincodeQuery(String chaincodeName, List<ByteString> args) {
+            this.chaincodeName = chaincodeName;
+            this.args = args;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ChaincodeQuery that = (ChaincodeQuery) o;
+            return chaincodeName.equals(that.chaincodeName) && args.equals(that.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(chaincodeName, args);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package tech.lacambra.fabric.javachaincode;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+public interface Chaincode {
+
+    Response init(AsyncChaincodeStub stub);
+
+    Response invoke(AsyncChaincodeStub stub);
+
+    /**
+     * Called by the shim when the peer sends an INIT message. The transaction is
+     * completed once the returned stage completes.
+     * <p>
+     * The default implementation runs {@link #init(AsyncChaincodeStub)} on the calling worker.
+     *
+     * @param stub the stub of the current transaction
+     * @return the stage completed with the chaincode response
+     */
+    default CompletionStage<Response> initAsync(AsyncChaincodeStub stub) {
+        return CompletableFuture.completedFuture(init(stub));
+    }
+
+    /**
+     * Called by the shim when the peer sends a TRANSACTION message. The transaction is
+     * completed once the returned stage completes.
+     * <p>
+     * The default implementation runs {@link #invoke(AsyncChaincodeStub)} on the calling worker.
+     *
+     * @param stub the stub of the current transaction
+     * @return the stage completed with the chaincode response
+     */
+    default CompletionStage<Response> invokeAsync(AsyncChaincodeStub stub) {
+        return CompletableFuture.completedFuture(invoke(stub));
+    }
+
+}
@@ -3,32 +3,68 @@ package tech.lacambra.fabric.javachaincode;
 import io.grpc.ConnectivityState;
 import io.grpc.ManagedChannel;
 import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
 import io.vertx.core.net.JksOptions;
 import io.vertx.grpc.VertxChannelBuilder;
 import org.hyperledger.fabric.protos.peer.Chaincode.ChaincodeID;
 import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public abstract class ChaincodeBase implements Chaincode {
 
     private static final Logger logger = Logger.getLogger(ChaincodeBase.class.getName());
+    private static final String TRANSACTION_POOL_NAME = "chaincode-transactions";
+    private static final String METRICS_PATH = "/metrics";
+    private static final String METRICS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
 
     private final Vertx vertx;
+    private final ChaincodeOptions options;
     private final ConsoleCtrl consoleCtrl;
+    private final FunctionRouter router = FunctionRouter.forClass(getClass());
+    private final MessageTracer tracer;
     private boolean tlsEnabled;
     private ChatStream chatStream;
     private ManagedChannel channel;
 
     public ChaincodeBase(Vertx vertx) {
+        this(vertx, new ChaincodeOptions());
+    }
+
+    public ChaincodeBase(Vertx vertx, ChaincodeOptions options) {
         this.vertx = vertx;
+        this.options = options;
+        tracer = new MessageTracer(options.getTraceBufferSize(), options.getTracePayloadSampling());
         consoleCtrl = new ConsoleCtrl(vertx);
         setConsole();
+        startMetricsServer();
+    }
+
+    /**
+     * Routes the invocation to the {@link ChaincodeFunction} method named by
+     * {@link AsyncChaincodeStub#getFunction()}. Chaincodes override it to handle the functions
+     * that have no annotated method: {@link #invokeAsync(AsyncChaincodeStub)} only calls it
+     * for those.
+     */
+    @Override
+    public Response invoke(AsyncChaincodeStub stub) {
+        return router.route(this, stub).toCompletableFuture().join();
+    }
+
+    @Override
+    public CompletionStage<Response> invokeAsync(AsyncChaincodeStub stub) {
+        if (!router.routes(stub.getFunction())) {
+            return CompletableFuture.completedFuture(invoke(stub));
+        }
+        return router.route(this, stub);
     }
 
     public ManagedChannel newPeerClientConnection() {
         VertxChannelBuilder builder = VertxChannelBuilder
-                .forAddress(vertx, "192.168.99.100", 7052);
+                .forAddress(vertx, options.getPeerHost(), options.getPeerPort());
 
         if (tlsEnabled) {
             builder.useSsl(options -> options
@@ -61,7 +97,10 @@ public abstract class ChaincodeBase implements Chaincode {
     }
 
     public void chatWithPeer(ManagedChannel channel) {
-        chatStream = new ChatStream(channel);
+        final WorkerExecutor workerExecutor = vertx.createSharedWorkerExecutor(TRANSACTION_POOL_NAME,
+                options.getMaxConcurrentTransactions());
+        chatStream = new ChatStream(channel, options.getPipelineWindow(), options.getMetricsRegistry(), tracer,
+                stream -> new TransactionDispatcher(this, stream, options, workerExecutor));
         // Send the ChaincodeID during register.
         sendMessage();
 //        System.out.println(channel.shutdown().getState(false));
@@ -96,9 +135,40 @@ public abstract class ChaincodeBase implements Chaincode {
             process.write(state.name());
         });
 
+        consoleCtrl.addCommand("functions", (process) -> process.write(router.describeLatencies()));
+
+        consoleCtrl.addCommand("trace", (process) -> process.write(tracer.describeRecent()));
+
+        consoleCtrl.addCommand("metrics", (process) -> process.write(options.getMetricsRegistry().scrape()));
+
         consoleCtrl.startService();
     }
 
+    /*
+     * Serves the registry to Prometheus when a metrics port is configured.
+     */
+    private void startMetricsServer() {
+        if (options.getMetricsPort() == 0) {
+            return;
+        }
+
+        vertx.createHttpServer()
+                .requestHandler(request -> {
+                    if (!METRICS_PATH.equals(request.path())) {
+                        request.response().setStatusCode(404).end();
+                        return;
+                    }
+                    request.response()
+                            .putHeader("Content-Type", METRICS_CONTENT_TYPE)
+                            .end(options.getMetricsRegistry().scrape());
+                })
+                .listen(options.getMetricsPort(), options.getMetricsHost(), result -> {
+                    if (result.failed()) {
+                        logger.log(Level.WARNING, "[startMetricsServer] Cannot listen on " + options.getMetricsHost() + ":" + options.getMetricsPort(), result.cause());
+                    }
+                });
+    }
+
     public static void main(String[] args) {
 
         Vertx vertx = Vertx.vertx().exceptionHandler(System.out::println);
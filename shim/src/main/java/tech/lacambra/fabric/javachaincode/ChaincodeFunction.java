@@ -0,0 +1,31 @@
+package tech.lacambra.fabric.javachaincode;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a public method of a {@link ChaincodeBase} subclass as the handler of a chaincode
+ * function. The method receives the stub followed by the function parameters, decoded to
+ * the declared types, and returns either a {@link Response} or a
+ * {@link java.util.concurrent.CompletionStage} of it:
+ * <pre>
+ * &#64;ChaincodeFunction("transfer")
+ * public Response transfer(AsyncChaincodeStub stub, String from, String to, long amount)
+ * </pre>
+ * Supported parameter types are {@code String}, {@code byte[]}, {@code int}, {@code long},
+ * {@code double}, {@code boolean} and their wrappers.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ChaincodeFunction {
+
+    /**
+     * @return the function name, the method name if empty
+     */
+    String value() default "";
+
+}
@@ -0,0 +1,46 @@
+package tech.lacambra.fabric.javachaincode;
+
+import java.util.List;
+
+/**
+ * One chaincode call of {@link AsyncChaincodeStub#invokeChaincodeAll(List)}.
+ */
+public class ChaincodeInvocation {
+
+    private final String chaincodeName;
+    private final List<byte[]> args;
+    private final String channel;
+
+    public ChaincodeInvocation(String chaincodeName, List<byte[]> args) {
+        this(chaincodeName, args, null);
+    }
+
+    /**
+     * @param chaincodeName name of the chaincode to be invoked
+     * @param args          arguments to pass on to the called chaincode
+     * @param channel       channel of the called chaincode, the caller's channel if null or empty
+     */
+    public ChaincodeInvocation(String chaincodeName, List<byte[]> args, String channel) {
+        if (chaincodeName == null || chaincodeName.isEmpty()) {
+            throw new IllegalArgumentException("chaincodeName cannot be null or empty");
+        }
+        if (args == null) {
+            throw new NullPointerException("args cannot be null");
+        }
+        this.chaincodeName = chaincodeName;
+        this.args = args;
+        this.channel = channel;
+    }
+
+    public String getChaincodeName() {
+        return chaincodeName;
+    }
+
+    public List<byte[]> getArgs() {
+        return args;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+}
@@ -0,0 +1,378 @@
+package tech.lacambra.fabric.javachaincode;
+
+import tech.lacambra.fabric.javachaincode.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tuning options of the shim runtime started by {@link ChaincodeBase}.
+ */
+public class ChaincodeOptions {
+
+    /**
+     * Default number of transactions executed in parallel.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_TRANSACTIONS = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Default value of the write buffering mode.
+     */
+    public static final boolean DEFAULT_BUFFER_WRITES = false;
+
+    /**
+     * Default value of the read caching mode.
+     */
+    public static final boolean DEFAULT_CACHE_READS = true;
+
+    /**
+     * Default number of requests of a transaction sent to the peer without waiting for a
+     * response: strict serial mode.
+     */
+    public static final int DEFAULT_PIPELINE_WINDOW = 1;
+
+    /**
+     * Default number of query result pages requested ahead of the page being consumed.
+     */
+    public static final int DEFAULT_QUERY_PREFETCH_DEPTH = 1;
+
+    /**
+     * Default number of parsed client identities kept in memory.
+     */
+    public static final int DEFAULT_CLIENT_IDENTITY_CACHE_SIZE = 1024;
+
+    /**
+     * Default host of the peer the chaincode connects to.
+     */
+    public static final String DEFAULT_PEER_HOST = "192.168.99.100";
+
+    /**
+     * Default chaincode listen port of the peer.
+     */
+    public static final int DEFAULT_PEER_PORT = 7052;
+
+    /**
+     * Default port of the Prometheus metrics endpoint: disabled.
+     */
+    public static final int DEFAULT_METRICS_PORT = 0;
+
+    /**
+     * Default host the metrics endpoint binds to: loopback only.
+     */
+    public static final String DEFAULT_METRICS_HOST = "127.0.0.1";
+
+    /**
+     * Default number of recent peer messages kept for the console.
+     */
+    public static final int DEFAULT_TRACE_BUFFER_SIZE = 256;
+
+    /**
+     * Default sampling of the traced message payloads: never dumped.
+     */
+    public static final int DEFAULT_TRACE_PAYLOAD_SAMPLING = 0;
+
+    private int maxConcurrentTransactions;
+    private boolean bufferWrites;
+    private boolean cacheReads;
+    private int pipelineWindow;
+    private int queryPrefetchDepth;
+    private int clientIdentityCacheSize;
+    private String peerHost;
+    private int peerPort;
+    private MetricsRegistry metricsRegistry;
+    private int metricsPort;
+    private String metricsHost;
+    private int traceBufferSize;
+    private int tracePayloadSampling;
+    private final List<SecondaryIndex> secondaryIndexes;
+
+    public ChaincodeOptions() {
+        maxConcurrentTransactions = DEFAULT_MAX_CONCURRENT_TRANSACTIONS;
+        bufferWrites = DEFAULT_BUFFER_WRITES;
+        cacheReads = DEFAULT_CACHE_READS;
+        pipelineWindow = DEFAULT_PIPELINE_WINDOW;
+        queryPrefetchDepth = DEFAULT_QUERY_PREFETCH_DEPTH;
+        clientIdentityCacheSize = DEFAULT_CLIENT_IDENTITY_CACHE_SIZE;
+        peerHost = DEFAULT_PEER_HOST;
+        peerPort = DEFAULT_PEER_PORT;
+        metricsRegistry = MetricsRegistry.NOOP;
+        metricsPort = DEFAULT_METRICS_PORT;
+        metricsHost = DEFAULT_METRICS_HOST;
+        traceBufferSize = DEFAULT_TRACE_BUFFER_SIZE;
+        tracePayloadSampling = DEFAULT_TRACE_PAYLOAD_SAMPLING;
+        secondaryIndexes = new ArrayList<>();
+    }
+
+    public int getMaxConcurrentTransactions() {
+        return maxConcurrentTransactions;
+    }
+
+    /**
+     * Sets the size of the worker pool executing INIT and TRANSACTION messages. Transactions
+     * received while all workers are busy wait until one of them is free again.
+     * <p>
+     * A worker is only held until the chaincode returns its response stage, so an
+     * {@link AsyncChaincode} can have many more transactions in flight than workers.
+     *
+     * @param maxConcurrentTransactions the maximum number of transactions running at the same time
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setMaxConcurrentTransactions(int maxConcurrentTransactions) {
+        if (maxConcurrentTransactions < 1) {
+            throw new IllegalArgumentException("maxConcurrentTransactions must be greater than 0");
+        }
+        this.maxConcurrentTransactions = maxConcurrentTransactions;
+        return this;
+    }
+
+    public boolean isBufferWrites() {
+        return bufferWrites;
+    }
+
+    /**
+     * Keeps the writes of a transaction in memory and sends them to the peer just before the
+     * transaction completes. Repeated writes to the same key are collapsed and
+     * {@link AsyncChaincodeStub#getState(String)} returns the buffered value of a key written in the
+     * same transaction (read-your-writes), which differs from the default behaviour of the peer.
+     * Range and rich queries do not see buffered writes.
+     *
+     * @param bufferWrites whether the writes are buffered
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setBufferWrites(boolean bufferWrites) {
+        this.bufferWrites = bufferWrites;
+        return this;
+    }
+
+    public boolean isCacheReads() {
+        return cacheReads;
+    }
+
+    /**
+     * Caches the values returned by {@link AsyncChaincodeStub#getState(String)} for the lifetime of
+     * the transaction, so every distinct key costs a single GET_STATE message. A key is evicted
+     * when the transaction writes or deletes it.
+     *
+     * @param cacheReads whether the reads are cached
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setCacheReads(boolean cacheReads) {
+        this.cacheReads = cacheReads;
+        return this;
+    }
+
+    public int getPipelineWindow() {
+        return pipelineWindow;
+    }
+
+    /**
+     * Sets how many requests of the same transaction can be waiting for a response at the same
+     * time. Responses are matched to requests in the order they were sent, so a window larger
+     * than 1 must only be used with peers answering the requests of a transaction in order.
+     *
+     * @param pipelineWindow the number of in-flight requests per transaction, 1 for strict serial mode
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setPipelineWindow(int pipelineWindow) {
+        if (pipelineWindow < 1) {
+            throw new IllegalArgumentException("pipelineWindow must be greater than 0");
+        }
+        this.pipelineWindow = pipelineWindow;
+        return this;
+    }
+
+    public int getQueryPrefetchDepth() {
+        return queryPrefetchDepth;
+    }
+
+    /**
+     * Sets how many pages of a range, rich or history query are requested from the peer while
+     * the current page is consumed. 0 requests every page when the previous one is exhausted.
+     *
+     * @param queryPrefetchDepth the number of pages fetched ahead
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setQueryPrefetchDepth(int queryPrefetchDepth) {
+        if (queryPrefetchDepth < 0) {
+            throw new IllegalArgumentException("queryPrefetchDepth cannot be negative");
+        }
+        this.queryPrefetchDepth = queryPrefetchDepth;
+        return this;
+    }
+
+    public int getClientIdentityCacheSize() {
+        return clientIdentityCacheSize;
+    }
+
+    /**
+     * Sets how many parsed identities returned by {@link AsyncChaincodeStub#getClientIdentity()}
+     * are kept, the least recently used being evicted first.
+     *
+     * @param clientIdentityCacheSize the maximum number of cached identities
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setClientIdentityCacheSize(int clientIdentityCacheSize) {
+        if (clientIdentityCacheSize < 1) {
+            throw new IllegalArgumentException("clientIdentityCacheSize must be greater than 0");
+        }
+        this.clientIdentityCacheSize = clientIdentityCacheSize;
+        return this;
+    }
+
+    public List<SecondaryIndex> getSecondaryIndexes() {
+        return Collections.unmodifiableList(secondaryIndexes);
+    }
+
+    /**
+     * Registers a secondary index kept in sync by the stub whenever an indexed key is written
+     * or deleted.
+     *
+     * @param secondaryIndex the index definition
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions addSecondaryIndex(SecondaryIndex secondaryIndex) {
+        if (secondaryIndex == null) {
+            throw new NullPointerException("secondaryIndex cannot be null");
+        }
+        for (SecondaryIndex registered : secondaryIndexes) {
+            if (registered.getObjectType().equals(secondaryIndex.getObjectType())) {
+                throw new IllegalArgumentException("An index with object type " + secondaryIndex.getObjectType() + " is already registered");
+            }
+        }
+        secondaryIndexes.add(secondaryIndex);
+        return this;
+    }
+
+    public String getPeerHost() {
+        return peerHost;
+    }
+
+    /**
+     * Sets the host of the peer {@link ChaincodeBase#start(String...)} connects to.
+     *
+     * @param peerHost the peer host name or address
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setPeerHost(String peerHost) {
+        if (peerHost == null || peerHost.isEmpty()) {
+            throw new IllegalArgumentException("peerHost cannot be null or empty");
+        }
+        this.peerHost = peerHost;
+        return this;
+    }
+
+    public int getPeerPort() {
+        return peerPort;
+    }
+
+    /**
+     * Sets the chaincode listen port of the peer {@link ChaincodeBase#start(String...)} connects to.
+     *
+     * @param peerPort the peer port
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setPeerPort(int peerPort) {
+        if (peerPort < 1 || peerPort > 65535) {
+            throw new IllegalArgumentException("peerPort must be between 1 and 65535");
+        }
+        this.peerPort = peerPort;
+        return this;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * Sets the registry the shim publishes its peer round-trip, queue depth and transaction
+     * metrics to. The default registry drops every measurement, so the shim is not
+     * instrumented unless a registry is set.
+     *
+     * @param metricsRegistry the registry receiving the shim metrics
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        if (metricsRegistry == null) {
+            throw new NullPointerException("metricsRegistry cannot be null");
+        }
+        this.metricsRegistry = metricsRegistry;
+        return this;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    /**
+     * Sets the port of an HTTP server exposing the metrics registry at {@code /metrics} in the
+     * Prometheus text format.
+     *
+     * @param metricsPort the port of the metrics endpoint, 0 to disable it
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setMetricsPort(int metricsPort) {
+        if (metricsPort < 0 || metricsPort > 65535) {
+            throw new IllegalArgumentException("metricsPort must be between 0 and 65535");
+        }
+        this.metricsPort = metricsPort;
+        return this;
+    }
+
+    public String getMetricsHost() {
+        return metricsHost;
+    }
+
+    /**
+     * Sets the address the metrics endpoint binds to. The endpoint is only reachable from the
+     * local host by default.
+     *
+     * @param metricsHost the host name or address to listen on
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setMetricsHost(String metricsHost) {
+        if (metricsHost == null || metricsHost.isEmpty()) {
+            throw new IllegalArgumentException("metricsHost cannot be null or empty");
+        }
+        this.metricsHost = metricsHost;
+        return this;
+    }
+
+    public int getTraceBufferSize() {
+        return traceBufferSize;
+    }
+
+    /**
+     * Sets how many of the last messages exchanged with the peer are kept in memory, as type,
+     * transaction and size, for the {@code trace} console command.
+     *
+     * @param traceBufferSize the number of recent messages kept, 0 to keep none
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setTraceBufferSize(int traceBufferSize) {
+        if (traceBufferSize < 0) {
+            throw new IllegalArgumentException("traceBufferSize cannot be negative");
+        }
+        this.traceBufferSize = traceBufferSize;
+        return this;
+    }
+
+    public int getTracePayloadSampling() {
+        return tracePayloadSampling;
+    }
+
+    /**
+     * Logs the full content of one message out of tracePayloadSampling at FINEST. Every
+     * message is otherwise only traced at FINE with its type, transaction and size.
+     *
+     * @param tracePayloadSampling dump one message out of this many, 0 to never dump payloads
+     * @return a reference to this, so the API can be used fluently
+     */
+    public ChaincodeOptions setTracePayloadSampling(int tracePayloadSampling) {
+        if (tracePayloadSampling < 0) {
+            throw new IllegalArgumentException("tracePayloadSampling cannot be negative");
+        }
+        this.tracePayloadSampling = tracePayloadSampling;
+        return this;
+    }
+}
@@ -0,0 +1,391 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.stub.StreamObserver;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+import org.hyperledger.fabric.protos.peer.ChaincodeSupportGrpc;
+import tech.lacambra.fabric.javachaincode.metrics.Counter;
+import tech.lacambra.fabric.javachaincode.metrics.DistributionSummary;
+import tech.lacambra.fabric.javachaincode.metrics.MetricsRegistry;
+import tech.lacambra.fabric.javachaincode.metrics.Timer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+public class ChatStream implements StreamObserver<ChaincodeMessage> {
+
+    private static final Logger logger = Logger.getLogger(ChatStream.class.getName());
+    private static final int TX_CONTEXT_POOL_SIZE = 64;
+
+    private final MsgQueueHandler msgQueueHandler;
+    private final StreamObserver<ChaincodeMessage> sender;
+    private final ManagedChannel channel;
+    private final TransactionDispatcher transactionDispatcher;
+    private final MessageTracer tracer;
+
+    public ChatStream(ManagedChannel channel) {
+        this(channel, ChaincodeOptions.DEFAULT_PIPELINE_WINDOW);
+    }
+
+    public ChatStream(ManagedChannel channel, int pipelineWindow) {
+        this(channel, pipelineWindow, MetricsRegistry.NOOP);
+    }
+
+    public ChatStream(ManagedChannel channel, int pipelineWindow, MetricsRegistry metrics) {
+        this(channel, pipelineWindow, metrics, newDefaultTracer(), null);
+    }
+
+    /*
+     * The dispatcher is created from the stream it replies on. Everything the gRPC threads
+     * read is assigned before the stream is registered with the peer.
+     */
+    ChatStream(ManagedChannel channel, int pipelineWindow, MetricsRegistry metrics, MessageTracer tracer,
+               Function<ChatStream, TransactionDispatcher> dispatcherFactory) {
+        this.channel = channel;
+        this.msgQueueHandler = new MsgQueueHandler(pipelineWindow, metrics);
+        this.tracer = tracer;
+        this.transactionDispatcher = dispatcherFactory == null ? null : dispatcherFactory.apply(this);
+        ChaincodeSupportGrpc.ChaincodeSupportStub stub = ChaincodeSupportGrpc.newStub(channel);
+        sender = stub.register(this);
+    }
+
+    /*
+     * Chats over the given observer instead of a gRPC channel, for in-memory peers.
+     */
+    ChatStream(StreamObserver<ChaincodeMessage> sender, int pipelineWindow) {
+        this.msgQueueHandler = new MsgQueueHandler(pipelineWindow, MetricsRegistry.NOOP);
+        this.sender = sender;
+        this.channel = null;
+        this.transactionDispatcher = null;
+        this.tracer = newDefaultTracer();
+    }
+
+    private static MessageTracer newDefaultTracer() {
+        return new MessageTracer(ChaincodeOptions.DEFAULT_TRACE_BUFFER_SIZE, ChaincodeOptions.DEFAULT_TRACE_PAYLOAD_SAMPLING);
+    }
+
+    public CompletableFuture<ByteString> sendMessage(ChaincodeMessage message) {
+        return msgQueueHandler.queueMsg(message);
+    }
+
+    /*
+     * Writes a message to the peer without waiting for a response, as needed for
+     * COMPLETED and ERROR messages closing a transaction. The underlying gRPC observer
+     * is not thread safe and is shared by all the running transactions.
+     */
+    void send(ChaincodeMessage message) {
+        tracer.sent(message);
+        synchronized (sender) {
+            sender.onNext(message);
+        }
+    }
+
+    @Override
+    public void onNext(ChaincodeMessage message) {
+        tracer.received(message);
+
+        switch (message.getType()) {
+            case INIT:
+            case TRANSACTION:
+                dispatchTransaction(message);
+                break;
+            case KEEPALIVE:
+                break;
+            default:
+                msgQueueHandler.handleMsgResponse(message);
+        }
+    }
+
+    private void dispatchTransaction(ChaincodeMessage message) {
+        if (transactionDispatcher == null) {
+            send(MessageFactory.newErrorEventMessage(message.getChannelId(), message.getTxid(), "No chaincode registered on this stream"));
+            return;
+        }
+        transactionDispatcher.dispatch(message);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        throw new RuntimeException(t);
+
+
+    }
+
+    @Override
+    public void onCompleted() {
+        if (channel != null) {
+            channel.shutdown();
+        }
+        logger.info("[onCompleted] Done!");
+
+    }
+
+    /*
+     * Queues the requests of every transaction context (channel id + tx id). Up to
+     * pipelineWindow requests of the same context are on the wire at the same time; the
+     * peer does not echo any correlation id, so responses are matched to the in-flight
+     * requests in the order they were sent. A window of 1 waits for every response before
+     * sending the next request, as required by peers answering out of order.
+     * <p>
+     * Contexts are indexed by channel then by tx id, so no key is built per message, and
+     * are only locked by the threads queueing to or answering the same transaction. A
+     * context is retired as soon as it has nothing waiting or in flight and is recycled
+     * through a small pool; its state is checked under its lock, so a thread still holding
+     * a retired or recycled context looks the transaction up again.
+     * <p>
+     * With a metrics registry, every request is timed from enqueue to response by message
+     * type, and the queue depth of its transaction is recorded when it is enqueued.
+     */
+    private class MsgQueueHandler {
+
+        private final int pipelineWindow;
+        private final Map<String, Map<String, TxContext>> txContexts;
+        private final TxContextPool pool;
+        private final MetricsRegistry metrics;
+        private final boolean metricsEnabled;
+        private final Map<ChaincodeMessage.Type, Timer> requestTimers;
+        private final Map<ChaincodeMessage.Type, Counter> requestErrors;
+        private final LongAdder inFlightRequests;
+        private final DistributionSummary queueDepth;
+
+        public MsgQueueHandler(int pipelineWindow, MetricsRegistry metrics) {
+            if (pipelineWindow < 1) {
+                throw new IllegalArgumentException("pipelineWindow must be greater than 0");
+            }
+            this.pipelineWindow = pipelineWindow;
+            txContexts = new ConcurrentHashMap<>();
+            pool = new TxContextPool(TX_CONTEXT_POOL_SIZE);
+            this.metrics = metrics;
+            this.metricsEnabled = metrics != MetricsRegistry.NOOP;
+            this.requestTimers = new ConcurrentHashMap<>();
+            this.requestErrors = new ConcurrentHashMap<>();
+            this.inFlightRequests = new LongAdder();
+            this.queueDepth = metrics.summary("chaincode.peer.queue.depth");
+            metrics.gauge("chaincode.peer.requests.inflight", inFlightRequests::sum);
+            metrics.gauge("chaincode.peer.queue.transactions",
+                    () -> txContexts.values().stream().mapToLong(Map::size).sum());
+        }
+
+        public CompletableFuture<ByteString> queueMsg(ChaincodeMessage message) {
+            QueueMessage queueMessage = new QueueMessage(message);
+            CompletableFuture<ByteString> future = queueMessage.getOnResponse().thenApply(response -> {
+                if (response.getType() == ChaincodeMessage.Type.ERROR) {
+                    throw new RuntimeException(response.getPayload().toStringUtf8());
+                }
+                return response.getPayload();
+            });
+
+            if (metricsEnabled) {
+                time(queueMessage);
+            }
+
+            enqueue(message.getChannelId(), message.getTxid(), queueMessage);
+            return future;
+        }
+
+        /*
+         * Messages are moved to the in-flight queue and written under the lock of their
+         * context, so the wire order always matches the order responses are matched in.
+         */
+        private void enqueue(String channelId, String txId, QueueMessage queueMessage) {
+            final Map<String, TxContext> channelContexts = channelContexts(channelId);
+
+            while (true) {
+                TxContext context = channelContexts.get(txId);
+
+                if (context == null) {
+                    context = pool.acquire();
+                    synchronized (context) {
+                        context.activate(channelId, txId);
+                        if (channelContexts.putIfAbsent(txId, context) == null) {
+                            append(context, queueMessage);
+                            return;
+                        }
+                        context.retire();
+                    }
+                    pool.release(context);
+                    continue;
+                }
+
+                synchronized (context) {
+                    if (context.isActive(channelId, txId)) {
+                        append(context, queueMessage);
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void append(TxContext context, QueueMessage queueMessage) {
+            context.waiting.addLast(queueMessage);
+            if (metricsEnabled) {
+                queueDepth.record(context.waiting.size() + context.inFlight.size());
+            }
+            sendMessages(context);
+        }
+
+        private Map<String, TxContext> channelContexts(String channelId) {
+            final Map<String, TxContext> channelContexts = txContexts.get(channelId);
+            return channelContexts != null ? channelContexts : txContexts.computeIfAbsent(channelId, id -> new ConcurrentHashMap<>());
+        }
+
+        private void time(QueueMessage queueMessage) {
+            final long start = System.nanoTime();
+            final ChaincodeMessage.Type type = queueMessage.getChaincodeMessage().getType();
+
+            queueMessage.getOnResponse().whenComplete((response, error) -> {
+                requestTimers.computeIfAbsent(type, t -> metrics.timer("chaincode.peer.requests", "type", t.name()))
+                        .record(System.nanoTime() - start);
+                if (error != null || response.getType() == ChaincodeMessage.Type.ERROR) {
+                    requestErrors.computeIfAbsent(type, t -> metrics.counter("chaincode.peer.request.errors", "type", t.name()))
+                            .increment();
+                }
+            });
+        }
+
+        private void sendMessages(TxContext context) {
+            while (context.inFlight.size() < pipelineWindow && !context.waiting.isEmpty()) {
+                QueueMessage message = context.waiting.pollFirst();
+                context.inFlight.addLast(message);
+                if (metricsEnabled) {
+                    inFlightRequests.increment();
+                }
+                send(message.getChaincodeMessage());
+            }
+        }
+
+        /*
+         * Handle a response to a message. this takes the oldest in-flight message of the
+         * specific txn id to get the message this response is associated with, sends the
+         * next waiting messages if the window allows it and finally drives the promise
+         * waiting on the answered message, outside of the context lock so that callbacks
+         * can queue new messages.
+         *
+         * @param {any} response the received response
+         */
+        public void handleMsgResponse(ChaincodeMessage response) {
+            final String txId = response.getTxid();
+            final String channelId = response.getChannelId();
+            final Map<String, TxContext> channelContexts = txContexts.get(channelId);
+            if (channelContexts == null) {
+                return;
+            }
+
+            QueueMessage answered;
+            TxContext retired = null;
+
+            while (true) {
+                final TxContext context = channelContexts.get(txId);
+                if (context == null) {
+                    return;
+                }
+
+                synchronized (context) {
+                    if (!context.isActive(channelId, txId)) {
+                        continue;
+                    }
+                    answered = context.inFlight.pollFirst();
+                    sendMessages(context);
+                    if (context.isEmpty()) {
+                        context.retire();
+                        channelContexts.remove(txId, context);
+                        retired = context;
+                    }
+                }
+                break;
+            }
+
+            if (retired != null) {
+                pool.release(retired);
+            }
+
+            if (answered != null) {
+                if (metricsEnabled) {
+                    inFlightRequests.decrement();
+                }
+                answered.getOnResponse().complete(response);
+            }
+        }
+
+        private Response parseResponse(PeerMessageHandler handler, ChaincodeMessage response, String method) {
+            return null;
+        }
+    }
+
+    /*
+     * The requests of one transaction. A context is ACTIVE while it is mapped to its
+     * transaction and FREE once retired; both the state and the queues are guarded by
+     * the context monitor.
+     */
+    private static class TxContext {
+
+        private static final int FREE = 0;
+        private static final int ACTIVE = 1;
+
+        private final Deque<QueueMessage> waiting = new ArrayDeque<>();
+        private final Deque<QueueMessage> inFlight = new ArrayDeque<>();
+        private String channelId;
+        private String txId;
+        private int state = FREE;
+
+        private void activate(String channelId, String txId) {
+            this.channelId = channelId;
+            this.txId = txId;
+            this.state = ACTIVE;
+        }
+
+        private boolean isActive(String channelId, String txId) {
+            return state == ACTIVE && this.txId.equals(txId) && this.channelId.equals(channelId);
+        }
+
+        private void retire() {
+            this.state = FREE;
+            this.channelId = null;
+            this.txId = null;
+        }
+
+        private boolean isEmpty() {
+            return waiting.isEmpty() && inFlight.isEmpty();
+        }
+    }
+
+    /*
+     * Retired contexts kept for reuse, so their queues are not reallocated for every
+     * transaction. Slots are claimed with a CAS, scanning from the first one so the pooled
+     * contexts stay packed at the front; contexts released to a full pool are dropped.
+     */
+    private static class TxContextPool {
+
+        private final AtomicReferenceArray<TxContext> slots;
+
+        private TxContextPool(int size) {
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+
+        private TxContext acquire() {
+            for (int i = 0; i < slots.length(); i++) {
+                final TxContext context = slots.get(i);
+                if (context != null && slots.compareAndSet(i, context, null)) {
+                    return context;
+                }
+            }
+            return new TxContext();
+        }
+
+        private void release(TxContext context) {
+            for (int i = 0; i < slots.length(); i++) {
+                if (slots.get(i) == null && slots.compareAndSet(i, null, context)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package tech.lacambra.fabric.javachaincode;
+
+import java.security.cert.X509Certificate;
+
+/**
+ * The identity of the client submitting a transaction, as found in the creator field of
+ * the proposal.
+ */
+public interface ClientIdentity {
+
+    /**
+     * Returns the ID of the MSP the client belongs to.
+     *
+     * @return the MSP ID
+     */
+    String getMSPID();
+
+    /**
+     * Returns a unique ID of the client within its MSP, built from the subject and the
+     * issuer of its certificate.
+     *
+     * @return the client ID
+     */
+    String getId();
+
+    /**
+     * Returns the X.509 certificate of the client.
+     *
+     * @return the certificate
+     */
+    X509Certificate getX509Certificate();
+
+    /**
+     * Returns the value of an attribute embedded in the certificate by the Fabric CA.
+     *
+     * @param name the attribute name
+     * @return the attribute value, or null if the certificate does not have it
+     */
+    String getAttributeValue(String name);
+
+}
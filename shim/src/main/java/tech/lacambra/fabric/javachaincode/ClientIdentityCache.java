@@ -0,0 +1,44 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of parsed client identities, keyed by the raw creator bytes. The same few
+ * clients usually submit most of the transactions, so the serialized identity and its
+ * certificate are only parsed once per client.
+ * <p>
+ * {@link ByteString} caches its hash code and compares by content, which makes the creator
+ * itself a cheap and collision-safe key.
+ */
+class ClientIdentityCache {
+
+    private final Map<ByteString, ClientIdentity> identities;
+
+    ClientIdentityCache(int maxSize) {
+        this.identities = new LinkedHashMap<ByteString, ClientIdentity>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteString, ClientIdentity> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    ClientIdentity get(ByteString creator) {
+        synchronized (identities) {
+            final ClientIdentity cached = identities.get(creator);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // parsed outside of the lock, concurrent misses on the same creator are harmless
+        final ClientIdentity identity = new ClientIdentityImpl(creator);
+        synchronized (identities) {
+            identities.put(creator, identity);
+        }
+        return identity;
+    }
+}
@@ -0,0 +1,88 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.vertx.core.json.JsonObject;
+import org.hyperledger.fabric.protos.msp.Identities;
+
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+class ClientIdentityImpl implements ClientIdentity {
+
+    // extension in which the Fabric CA stores the attributes of an enrollment certificate
+    private static final String ATTRIBUTES_OID = "1.2.3.4.5.6.7.8.1";
+
+    private final String mspId;
+    private final String id;
+    private final X509Certificate certificate;
+    private final Map<String, String> attributes;
+
+    ClientIdentityImpl(ByteString creator) {
+        try {
+            final Identities.SerializedIdentity identity = Identities.SerializedIdentity.parseFrom(creator);
+            final CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+
+            this.mspId = identity.getMspid();
+            this.certificate = (X509Certificate) certificateFactory.generateCertificate(identity.getIdBytes().newInput());
+            this.id = String.format("x509::%s::%s",
+                    certificate.getSubjectX500Principal().getName(),
+                    certificate.getIssuerX500Principal().getName());
+            this.attributes = parseAttributes(certificate);
+        } catch (InvalidProtocolBufferException | CertificateException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String getMSPID() {
+        return mspId;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public X509Certificate getX509Certificate() {
+        return certificate;
+    }
+
+    @Override
+    public String getAttributeValue(String name) {
+        return attributes.get(name);
+    }
+
+    /*
+     * The extension value is a DER octet string wrapping the JSON document
+     * {"attrs":{"name":"value",...}}.
+     */
+    private static Map<String, String> parseAttributes(X509Certificate certificate) {
+        final byte[] extension = certificate.getExtensionValue(ATTRIBUTES_OID);
+        if (extension == null || extension.length < 2) {
+            return Collections.emptyMap();
+        }
+
+        int offset = 2;
+        if ((extension[1] & 0x80) != 0) {
+            // long form: the low bits give the number of length bytes
+            offset += extension[1] & 0x7F;
+        }
+
+        final JsonObject attrs = new JsonObject(new String(extension, offset, extension.length - offset, UTF_8)).getJsonObject("attrs");
+        if (attrs == null) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, String> attributes = new HashMap<>();
+        attrs.forEach(entry -> attributes.put(entry.getKey(), String.valueOf(entry.getValue())));
+        return Collections.unmodifiableMap(attributes);
+    }
+}
@@ -0,0 +1,28 @@
+package tech.lacambra.fabric.javachaincode;
+
+import org.hyperledger.fabric.protos.ledger.queryresult.KvQueryResult;
+import tech.lacambra.fabric.javachaincode.ledger.CompositeKey;
+import tech.lacambra.fabric.javachaincode.ledger.CompositeKeyValue;
+
+/*
+ * The composite key is parsed on first access. Concurrent first calls may both parse it,
+ * which is harmless as the parsed keys are equal.
+ */
+class CompositeKeyValueImpl extends KeyValueImpl implements CompositeKeyValue {
+
+    private volatile CompositeKey compositeKey;
+
+    CompositeKeyValueImpl(KvQueryResult.KV kv) {
+        super(kv);
+    }
+
+    @Override
+    public CompositeKey getCompositeKey() {
+        CompositeKey parsed = compositeKey;
+        if (parsed == null) {
+            parsed = CompositeKey.parseCompositeKey(getKey());
+            compositeKey = parsed;
+        }
+        return parsed;
+    }
+}
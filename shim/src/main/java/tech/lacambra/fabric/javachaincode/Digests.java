@@ -0,0 +1,31 @@
+package tech.lacambra.fabric.javachaincode;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/*
+ * Per-thread message digests, MessageDigest instances being neither thread safe nor cheap
+ * to look up.
+ */
+final class Digests {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private Digests() {
+    }
+
+    /*
+     * The SHA-256 digest of the calling thread, reset.
+     */
+    static MessageDigest sha256() {
+        final MessageDigest messageDigest = SHA256.get();
+        messageDigest.reset();
+        return messageDigest;
+    }
+}
@@ -0,0 +1,253 @@
+package tech.lacambra.fabric.javachaincode;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static tech.lacambra.fabric.javachaincode.MessageFactory.newErrorChaincodeResponse;
+
+/**
+ * Dispatch table of the {@link ChaincodeFunction} methods of a chaincode class. The class is
+ * scanned once; every function is compiled to a method handle with its argument decoders, so
+ * routing an invocation costs a map lookup and no reflection.
+ */
+class FunctionRouter {
+
+    private static final Map<Class<?>, ArgumentDecoder> DECODERS = new HashMap<>();
+
+    static {
+        ArgumentDecoder intDecoder = (arguments, index) -> Integer.valueOf(arguments.parameters.get(index));
+        ArgumentDecoder longDecoder = (arguments, index) -> Long.valueOf(arguments.parameters.get(index));
+        ArgumentDecoder doubleDecoder = (arguments, index) -> Double.valueOf(arguments.parameters.get(index));
+        ArgumentDecoder booleanDecoder = (arguments, index) -> parseBoolean(arguments.parameters.get(index));
+
+        DECODERS.put(String.class, (arguments, index) -> arguments.parameters.get(index));
+        DECODERS.put(byte[].class, (arguments, index) -> {
+            // the function name is the first argument
+            ByteBuffer arg = arguments.buffers().get(index + 1);
+            byte[] bytes = new byte[arg.remaining()];
+            arg.get(bytes);
+            return bytes;
+        });
+        DECODERS.put(int.class, intDecoder);
+        DECODERS.put(Integer.class, intDecoder);
+        DECODERS.put(long.class, longDecoder);
+        DECODERS.put(Long.class, longDecoder);
+        DECODERS.put(double.class, doubleDecoder);
+        DECODERS.put(Double.class, doubleDecoder);
+        DECODERS.put(boolean.class, booleanDecoder);
+        DECODERS.put(Boolean.class, booleanDecoder);
+    }
+
+    private final Map<String, RoutedFunction> functions;
+
+    private FunctionRouter(Map<String, RoutedFunction> functions) {
+        this.functions = functions;
+    }
+
+    static FunctionRouter forClass(Class<?> chaincodeClass) {
+        final Map<String, RoutedFunction> functions = new HashMap<>();
+
+        for (Method method : chaincodeClass.getMethods()) {
+            final ChaincodeFunction annotation = method.getAnnotation(ChaincodeFunction.class);
+            if (annotation == null) {
+                continue;
+            }
+
+            final String name = annotation.value().isEmpty() ? method.getName() : annotation.value();
+            final RoutedFunction previous = functions.put(name, new RoutedFunction(name, method));
+            if (previous != null) {
+                throw new IllegalStateException(String.format("Function %s is mapped to %s and %s", name, previous.method, method));
+            }
+        }
+
+        return new FunctionRouter(functions);
+    }
+
+    boolean routes(String name) {
+        return name != null && functions.containsKey(name);
+    }
+
+    CompletionStage<Response> route(Object chaincode, AsyncChaincodeStub stub) {
+        final String name = stub.getFunction();
+        final RoutedFunction function = name == null ? null : functions.get(name);
+
+        if (function == null) {
+            return CompletableFuture.completedFuture(newErrorChaincodeResponse("Unknown function: " + name));
+        }
+        return function.invoke(chaincode, stub);
+    }
+
+    /*
+     * One line per function: invocations, errors, mean and max latency in microseconds.
+     */
+    String describeLatencies() {
+        final StringBuilder builder = new StringBuilder();
+        new TreeMap<>(functions).forEach((name, function) -> builder.append(function.describeLatency()).append('\n'));
+        return builder.toString();
+    }
+
+    /*
+     * Only "true" and "false" are accepted, Boolean.valueOf would read any typo as false.
+     */
+    private static Boolean parseBoolean(String value) {
+        if ("true".equals(value)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equals(value)) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("\"" + value + "\" is not a boolean");
+    }
+
+    @FunctionalInterface
+    private interface ArgumentDecoder {
+        Object decode(Arguments arguments, int index);
+    }
+
+    /*
+     * The arguments of one invocation. The raw buffers are only fetched from the stub if a
+     * parameter needs them, and then once for all such parameters.
+     */
+    private static class Arguments {
+
+        private final AsyncChaincodeStub stub;
+        private final List<String> parameters;
+        private List<ByteBuffer> buffers;
+
+        private Arguments(AsyncChaincodeStub stub, List<String> parameters) {
+            this.stub = stub;
+            this.parameters = parameters;
+        }
+
+        private List<ByteBuffer> buffers() {
+            if (buffers == null) {
+                buffers = stub.getArgBuffers();
+            }
+            return buffers;
+        }
+    }
+
+    private static class RoutedFunction {
+
+        private final String name;
+        private final Method method;
+        private final MethodHandle handle;
+        private final ArgumentDecoder[] decoders;
+        private final boolean async;
+        private final LongAdder invocations;
+        private final LongAdder errors;
+        private final LongAdder totalNanos;
+        private final LongAccumulator maxNanos;
+
+        private RoutedFunction(String name, Method method) {
+            final Class<?>[] parameterTypes = method.getParameterTypes();
+            if (parameterTypes.length == 0 || !parameterTypes[0].isAssignableFrom(AsyncChaincodeStub.class)) {
+                throw new IllegalStateException("The first parameter of " + method + " must be an AsyncChaincodeStub");
+            }
+
+            if (method.getReturnType() == Response.class) {
+                this.async = false;
+            } else if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+                this.async = true;
+            } else {
+                throw new IllegalStateException(method + " must return a Response or a CompletionStage<Response>");
+            }
+
+            this.decoders = new ArgumentDecoder[parameterTypes.length - 1];
+            for (int i = 1; i < parameterTypes.length; i++) {
+                decoders[i - 1] = DECODERS.get(parameterTypes[i]);
+                if (decoders[i - 1] == null) {
+                    throw new IllegalStateException("Unsupported parameter type " + parameterTypes[i].getName() + " in " + method);
+                }
+            }
+
+            try {
+                method.setAccessible(true);
+                // (chaincode, stub, parameters...) spread from a single Object[]
+                this.handle = MethodHandles.lookup().unreflect(method)
+                        .asType(MethodType.genericMethodType(parameterTypes.length + 1))
+                        .asSpreader(Object[].class, parameterTypes.length + 1);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot access " + method, e);
+            }
+
+            this.name = name;
+            this.method = method;
+            this.invocations = new LongAdder();
+            this.errors = new LongAdder();
+            this.totalNanos = new LongAdder();
+            this.maxNanos = new LongAccumulator(Math::max, 0);
+        }
+
+        @SuppressWarnings("unchecked")
+        CompletionStage<Response> invoke(Object chaincode, AsyncChaincodeStub stub) {
+            final List<String> parameters = stub.getParameters();
+            if (parameters.size() != decoders.length) {
+                return CompletableFuture.completedFuture(newErrorChaincodeResponse(String.format(
+                        "Function %s expects %d arguments, received %d", name, decoders.length, parameters.size())));
+            }
+
+            final Object[] arguments = new Object[decoders.length + 2];
+            arguments[0] = chaincode;
+            arguments[1] = stub;
+            final Arguments encoded = new Arguments(stub, parameters);
+            try {
+                for (int i = 0; i < decoders.length; i++) {
+                    arguments[i + 2] = decoders[i].decode(encoded, i);
+                }
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.completedFuture(newErrorChaincodeResponse(String.format(
+                        "Invalid arguments for function %s: %s", name, e.getMessage())));
+            }
+
+            final long start = System.nanoTime();
+            final CompletionStage<Response> response;
+            try {
+                final Object result = (Object) handle.invokeExact(arguments);
+                response = async ? (CompletionStage<Response>) result : CompletableFuture.completedFuture((Response) result);
+            } catch (Throwable t) {
+                record(start, true);
+                final CompletableFuture<Response> failed = new CompletableFuture<>();
+                failed.completeExceptionally(t);
+                return failed;
+            }
+
+            if (response == null) {
+                record(start, true);
+                return CompletableFuture.completedFuture(null);
+            }
+
+            return response.whenComplete((result, error) ->
+                    record(start, error != null || result == null || result.getStatus() != Response.Status.SUCCESS));
+        }
+
+        private void record(long start, boolean failed) {
+            final long elapsed = System.nanoTime() - start;
+            invocations.increment();
+            totalNanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        String describeLatency() {
+            final long count = invocations.sum();
+            final long meanMicros = count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / count);
+            return String.format("%s invocations=%d errors=%d mean=%dus max=%dus",
+                    name, count, errors.sum(), meanMicros, TimeUnit.NANOSECONDS.toMicros(maxNanos.get()));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import org.hyperledger.fabric.protos.ledger.queryresult.KvQueryResult;
+import tech.lacambra.fabric.javachaincode.ledger.KeyModification;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+class KeyModificationImpl implements KeyModification {
+
+    private final String txId;
+    private final ByteString value;
+    private final Instant timestamp;
+    private final boolean deleted;
+
+    KeyModificationImpl(KvQueryResult.KeyModification km) {
+        final Timestamp timestamp = km.getTimestamp();
+        this.txId = km.getTxId();
+        this.value = km.getValue();
+        this.timestamp = Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+        this.deleted = km.getIsDelete();
+    }
+
+    @Override
+    public String getTxId() {
+        return txId;
+    }
+
+    @Override
+    public byte[] getValue() {
+        return value.toByteArray();
+    }
+
+    @Override
+    public ByteBuffer getValueBuffer() {
+        return value.asReadOnlyByteBuffer();
+    }
+
+    @Override
+    public String getStringValue() {
+        return value.toStringUtf8();
+    }
+
+    @Override
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyModificationImpl{" +
+                "txId='" + txId + '\'' +
+                ", value=" + value.size() + " bytes" +
+                ", timestamp=" + timestamp +
+                ", deleted=" + deleted +
+                '}';
+    }
+}
@@ -0,0 +1,46 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.ledger.queryresult.KvQueryResult;
+import tech.lacambra.fabric.javachaincode.ledger.KeyValue;
+
+import java.nio.ByteBuffer;
+
+class KeyValueImpl implements KeyValue {
+
+    private final String key;
+    private final ByteString value;
+
+    KeyValueImpl(KvQueryResult.KV kv) {
+        this.key = kv.getKey();
+        this.value = kv.getValue();
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public byte[] getValue() {
+        return value.toByteArray();
+    }
+
+    @Override
+    public ByteBuffer getValueBuffer() {
+        return value.asReadOnlyByteBuffer();
+    }
+
+    @Override
+    public String getStringValue() {
+        return value.toStringUtf8();
+    }
+
+    @Override
+    public String toString() {
+        return "KeyValueImpl{" +
+                "key='" + key + '\'' +
+                ", value=" + value.size() + " bytes" +
+                '}';
+    }
+}
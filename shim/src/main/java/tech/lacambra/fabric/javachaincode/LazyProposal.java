@@ -0,0 +1,149 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Timestamp;
+import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.peer.ProposalPackage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * The signed proposal of a transaction, decoded on demand. Each part of the proposal is
+ * parsed on first access and memoised, so a transaction only pays for the headers it
+ * actually reads. Only the channel header is parsed upfront, by {@link #validate()}, so an
+ * unexpected proposal type is rejected whatever the chaincode reads.
+ * <p>
+ * Concurrent first accesses may parse the same part twice, which is harmless as the parsed
+ * messages are immutable.
+ */
+class LazyProposal {
+
+    private final ProposalPackage.SignedProposal signedProposal;
+    private volatile ProposalPackage.Proposal proposal;
+    private volatile Common.Header header;
+    private volatile Common.ChannelHeader channelHeader;
+    private volatile Common.SignatureHeader signatureHeader;
+    private volatile Map<String, ByteString> transientMap;
+    private volatile byte[] binding;
+
+    LazyProposal(ProposalPackage.SignedProposal signedProposal) {
+        this.signedProposal = signedProposal;
+    }
+
+    /*
+     * Parses the channel header and checks the proposal type.
+     */
+    void validate() {
+        getChannelHeader();
+    }
+
+    ProposalPackage.SignedProposal getSignedProposal() {
+        return signedProposal;
+    }
+
+    Instant getTxTimestamp() {
+        final Timestamp timestamp = getChannelHeader().getTimestamp();
+        return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+    }
+
+    ByteString getCreator() {
+        return getSignatureHeader().getCreator();
+    }
+
+    Map<String, ByteString> getTransientMap() {
+        Map<String, ByteString> parsed = transientMap;
+        if (parsed == null) {
+            parsed = parse(() -> ProposalPackage.ChaincodeProposalPayload.parseFrom(getProposal().getPayload())).getTransientMapMap();
+            transientMap = parsed;
+        }
+        return parsed;
+    }
+
+    byte[] getBinding() {
+        byte[] computed = binding;
+        if (computed == null) {
+            computed = computeBinding(getChannelHeader(), getSignatureHeader());
+            binding = computed;
+        }
+        return computed.clone();
+    }
+
+    private ProposalPackage.Proposal getProposal() {
+        ProposalPackage.Proposal parsed = proposal;
+        if (parsed == null) {
+            parsed = parse(() -> ProposalPackage.Proposal.parseFrom(signedProposal.getProposalBytes()));
+            proposal = parsed;
+        }
+        return parsed;
+    }
+
+    private Common.Header getHeader() {
+        Common.Header parsed = header;
+        if (parsed == null) {
+            parsed = parse(() -> Common.Header.parseFrom(getProposal().getHeader()));
+            header = parsed;
+        }
+        return parsed;
+    }
+
+    private Common.ChannelHeader getChannelHeader() {
+        Common.ChannelHeader parsed = channelHeader;
+        if (parsed == null) {
+            parsed = parse(() -> Common.ChannelHeader.parseFrom(getHeader().getChannelHeader()));
+            validateProposalType(parsed);
+            channelHeader = parsed;
+        }
+        return parsed;
+    }
+
+    private Common.SignatureHeader getSignatureHeader() {
+        Common.SignatureHeader parsed = signatureHeader;
+        if (parsed == null) {
+            parsed = parse(() -> Common.SignatureHeader.parseFrom(getHeader().getSignatureHeader()));
+            signatureHeader = parsed;
+        }
+        return parsed;
+    }
+
+    private static void validateProposalType(Common.ChannelHeader channelHeader) {
+        // types unknown to the protos have no enum constant, switch on the number
+        switch (channelHeader.getType()) {
+            case Common.HeaderType.ENDORSER_TRANSACTION_VALUE:
+            case Common.HeaderType.CONFIG_VALUE:
+                return;
+            default:
+                final Common.HeaderType type = Common.HeaderType.forNumber(channelHeader.getType());
+                throw new RuntimeException(String.format("Unexpected transaction type: %s", type != null ? type : channelHeader.getType()));
+        }
+    }
+
+    private static byte[] computeBinding(final Common.ChannelHeader channelHeader, final Common.SignatureHeader signatureHeader) {
+        final MessageDigest messageDigest = Digests.sha256();
+        messageDigest.update(signatureHeader.getNonce().asReadOnlyByteBuffer());
+        messageDigest.update(signatureHeader.getCreator().asReadOnlyByteBuffer());
+        final ByteBuffer epochBytes = ByteBuffer.allocate(Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putLong(channelHeader.getEpoch());
+        epochBytes.flip();
+        messageDigest.update(epochBytes);
+        return messageDigest.digest();
+    }
+
+    private static <T> T parse(ProtoParser<T> parser) {
+        try {
+            return parser.parse();
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ProtoParser<T> {
+        T parse() throws InvalidProtocolBufferException;
+    }
+}
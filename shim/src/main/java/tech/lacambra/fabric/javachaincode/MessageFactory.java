@@ -16,26 +16,40 @@ public class MessageFactory {
     }
 
     public static ChaincodeShim.ChaincodeMessage newGetStateEventMessage(final String channelId, final String txId, final String key) {
+        return newGetStateEventMessage(channelId, txId, "", key);
+    }
+
+    public static ChaincodeShim.ChaincodeMessage newGetStateEventMessage(final String channelId, final String txId, final String collection, final String key) {
         return newEventMessage(GET_STATE, channelId, txId, ChaincodeShim.GetState.newBuilder()
                 .setKey(key)
-                .setCollection("")
+                .setCollection(collection)
                 .build().toByteString());
     }
 
     public static ChaincodeShim.ChaincodeMessage newPutStateEventMessage(final String channelId, final String txId, final String key, final ByteString value) {
+        return newPutStateEventMessage(channelId, txId, "", key, value);
+    }
+
+    public static ChaincodeShim.ChaincodeMessage newPutStateEventMessage(final String channelId, final String txId, final String collection, final String key,
+                                                                         final ByteString value) {
         return newEventMessage(PUT_STATE, channelId, txId, ChaincodeShim.PutState.newBuilder()
                 .setKey(key)
                 .setValue(value)
+                .setCollection(collection)
                 .build().toByteString());
     }
 
     public static ChaincodeShim.ChaincodeMessage newDeleteStateEventMessage(final String channelId, final String txId, final String key) {
+        return newDeleteStateEventMessage(channelId, txId, "", key);
+    }
+
+    public static ChaincodeShim.ChaincodeMessage newDeleteStateEventMessage(final String channelId, final String txId, final String collection, final String key) {
         return newEventMessage(
                 DEL_STATE,
                 channelId,
                 txId,
                 ChaincodeShim.DelState.newBuilder()
-                        .setCollection("")
+                        .setCollection(collection)
                         .setKey(key)
                         .build()
                         .toByteString()
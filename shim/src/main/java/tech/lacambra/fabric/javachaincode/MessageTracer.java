@@ -0,0 +1,113 @@
+package tech.lacambra.fabric.javachaincode;
+
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Traces the messages exchanged with the peer without rendering them. Every message is
+ * logged at FINE with its type, transaction and serialized size only; the full protobuf text
+ * of one message out of payloadSampling is logged at FINEST. The last messages are kept in a
+ * ring buffer that can be inspected from the console, whatever the log level.
+ */
+class MessageTracer {
+
+    private static final Logger logger = Logger.getLogger(MessageTracer.class.getName());
+
+    private final AtomicReferenceArray<Entry> recent;
+    private final AtomicLong sequence;
+    private final int payloadSampling;
+
+    /**
+     * @param bufferSize      the number of recent messages kept, 0 to keep none
+     * @param payloadSampling dump the payload of one message out of this many, 0 to never dump payloads
+     */
+    MessageTracer(int bufferSize, int payloadSampling) {
+        if (bufferSize < 0) {
+            throw new IllegalArgumentException("bufferSize cannot be negative");
+        }
+        if (payloadSampling < 0) {
+            throw new IllegalArgumentException("payloadSampling cannot be negative");
+        }
+        this.recent = new AtomicReferenceArray<>(bufferSize);
+        this.sequence = new AtomicLong();
+        this.payloadSampling = payloadSampling;
+    }
+
+    void sent(ChaincodeMessage message) {
+        trace(Direction.SENT, message);
+    }
+
+    void received(ChaincodeMessage message) {
+        trace(Direction.RECEIVED, message);
+    }
+
+    private void trace(Direction direction, ChaincodeMessage message) {
+        final long seq = sequence.getAndIncrement();
+
+        if (recent.length() > 0) {
+            recent.set((int) (seq % recent.length()), new Entry(seq, System.currentTimeMillis(), direction, message));
+        }
+
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, "[{0}] type={1} channel={2} txid={3} size={4}", new Object[]{
+                    direction, message.getType(), message.getChannelId(), message.getTxid(), message.getSerializedSize()});
+        }
+
+        if (payloadSampling > 0 && seq % payloadSampling == 0 && logger.isLoggable(Level.FINEST)) {
+            logger.finest("[" + direction + "] message=" + message);
+        }
+    }
+
+    /*
+     * One line per message still in the buffer, oldest first. Slots overwritten while
+     * the buffer is read are skipped.
+     */
+    String describeRecent() {
+        final StringBuilder builder = new StringBuilder();
+        final long last = sequence.get();
+
+        for (long seq = Math.max(0, last - recent.length()); seq < last; seq++) {
+            final Entry entry = recent.get((int) (seq % recent.length()));
+            if (entry != null && entry.seq == seq) {
+                builder.append(entry).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    private enum Direction {
+        SENT, RECEIVED
+    }
+
+    private static class Entry {
+
+        private final long seq;
+        private final long timestamp;
+        private final Direction direction;
+        private final ChaincodeMessage.Type type;
+        private final String channelId;
+        private final String txId;
+        private final int size;
+
+        private Entry(long seq, long timestamp, Direction direction, ChaincodeMessage message) {
+            this.seq = seq;
+            this.timestamp = timestamp;
+            this.direction = direction;
+            this.type = message.getType();
+            this.channelId = message.getChannelId();
+            this.txId = message.getTxid();
+            this.size = message.getSerializedSize();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s #%d %s %s channel=%s txid=%s size=%d",
+                    Instant.ofEpochMilli(timestamp), seq, direction, type, channelId, txId, size);
+        }
+    }
+}
@@ -2,13 +2,19 @@ package tech.lacambra.fabric.javachaincode;
 
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
 import org.hyperledger.fabric.protos.peer.Chaincode;
 import org.hyperledger.fabric.protos.peer.ChaincodeShim;
 import org.hyperledger.fabric.protos.peer.ProposalResponsePackage;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionException;
 
 import static org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage.Type.*;
 import static tech.lacambra.fabric.javachaincode.MessageFactory.newErrorChaincodeResponse;
@@ -18,7 +24,27 @@ public class PeerMessageHandler {
     private ChatStream chatStream;
 
     public CompletableFuture<ByteString> getState(String channelId, String txId, String key) {
-        return chatStream.sendMessage(newGetStateEventMessage("", channelId, txId, key));
+        return getState(channelId, txId, "", key);
+    }
+
+    /*
+     * Reads a key of a private data collection, or of the public state for the empty
+     * collection.
+     */
+    CompletableFuture<ByteString> getState(String channelId, String txId, String collection, String key) {
+        return chatStream.sendMessage(MessageFactory.newGetStateEventMessage(channelId, txId, collection, key));
+    }
+
+    /*
+     * Requests every distinct key at once, so the reads share the pipeline window of the
+     * transaction, and completes when all the values are available.
+     */
+    CompletableFuture<Map<String, ByteString>> getStates(String channelId, String txId, Collection<String> keys) {
+        Map<String, CompletableFuture<ByteString>> reads = new LinkedHashMap<>();
+        for (String key : new LinkedHashSet<>(keys)) {
+            reads.put(key, getState(channelId, txId, key));
+        }
+        return allOf(reads);
     }
 
     public PeerMessageHandler(ChatStream chatStream) {
@@ -29,41 +55,61 @@ public class PeerMessageHandler {
         return this.chatStream.sendMessage(message);
     }
 
-    private static ChaincodeShim.ChaincodeMessage newGetStateEventMessage(String collection, String channelId, String txId, String key) {
+    CompletableFuture<Response> putState(String channelId, String txId, String key, ByteString value) {
+        return putState(channelId, txId, "", key, value);
+    }
 
-        ChaincodeShim.GetState getStateMessage = ChaincodeShim.GetState
-                .newBuilder()
-                .setKey(key)
-                .setCollection(collection)
-                .build();
+    CompletableFuture<Response> putState(String channelId, String txId, String collection, String key, ByteString value) {
 
-        return MessageFactory.newEventMessage(GET_STATE, channelId, txId, getStateMessage.toByteString());
+        if (!isTransaction(channelId, txId)) {
+            throw new IllegalStateException("Cannot put state in query context");
+        }
+
+        ChaincodeShim.ChaincodeMessage message = MessageFactory.newPutStateEventMessage(channelId, txId, collection, key, value);
+        return chatStream.sendMessage(message).handle(PeerMessageHandler::toWriteResponse);
     }
 
-    CompletableFuture<Response> putState(String channelId, String txId, String key, ByteString value) {
+    /*
+     * Sends all the writes at once and completes with the first unsuccessful response, or
+     * with the last response if all of them succeeded.
+     */
+    CompletableFuture<Response> putStates(String channelId, String txId, Map<String, ByteString> values) {
 
         if (!isTransaction(channelId, txId)) {
             throw new IllegalStateException("Cannot put state in query context");
         }
 
-        ChaincodeShim.ChaincodeMessage message = MessageFactory.newPutStateEventMessage(channelId, txId, key, value);
-        return chatStream.sendMessage(message).thenApply(this::toResponse);
+        List<CompletableFuture<Response>> writes = new ArrayList<>(values.size());
+        values.forEach((key, value) -> writes.add(chatStream
+                .sendMessage(MessageFactory.newPutStateEventMessage(channelId, txId, key, value))
+                .handle(PeerMessageHandler::toWriteResponse)));
+
+        return firstFailure(writes);
     }
 
     CompletableFuture<Response> deleteState(String channelId, String txId, String key) {
+        return deleteState(channelId, txId, "", key);
+    }
+
+    CompletableFuture<Response> deleteState(String channelId, String txId, String collection, String key) {
 
         if (!isTransaction(channelId, txId)) {
             throw new IllegalStateException("Cannot put state in query context");
         }
 
-        ChaincodeShim.ChaincodeMessage message = MessageFactory.newDeleteStateEventMessage(channelId, txId, key);
-        return chatStream.sendMessage(message).thenApply(this::toResponse);
+        ChaincodeShim.ChaincodeMessage message = MessageFactory.newDeleteStateEventMessage(channelId, txId, collection, key);
+        return chatStream.sendMessage(message).handle(PeerMessageHandler::toWriteResponse);
     }
 
     CompletableFuture<ChaincodeShim.QueryResponse> getStateByRange(String channelId, String txId, String startKey, String endKey) {
+        return getStateByRange(channelId, txId, "", startKey, endKey);
+    }
+
+    CompletableFuture<ChaincodeShim.QueryResponse> getStateByRange(String channelId, String txId, String collection, String startKey, String endKey) {
         ChaincodeShim.GetStateByRange stateByRange = ChaincodeShim.GetStateByRange.newBuilder()
                 .setStartKey(startKey)
                 .setEndKey(endKey)
+                .setCollection(collection)
                 .build();
 
         return invokeQueryResponseMessage(channelId, txId, GET_STATE_BY_RANGE, stateByRange.toByteString());
@@ -75,8 +121,8 @@ public class PeerMessageHandler {
                 .build().toByteString());
     }
 
-    void queryStateClose(String channelId, String txId, String queryId) {
-        invokeQueryResponseMessage(channelId, txId, QUERY_STATE_CLOSE, ChaincodeShim.QueryStateClose.newBuilder()
+    CompletableFuture<ChaincodeShim.QueryResponse> queryStateClose(String channelId, String txId, String queryId) {
+        return invokeQueryResponseMessage(channelId, txId, QUERY_STATE_CLOSE, ChaincodeShim.QueryStateClose.newBuilder()
                 .setId(queryId)
                 .build().toByteString());
     }
@@ -88,8 +134,8 @@ public class PeerMessageHandler {
     }
 
     CompletableFuture<ChaincodeShim.QueryResponse> getHistoryForKey(String channelId, String txId, String key) {
-        return invokeQueryResponseMessage(channelId, txId, ChaincodeShim.ChaincodeMessage.Type.GET_HISTORY_FOR_KEY, ChaincodeShim.GetQueryResult.newBuilder()
-                .setQuery(key)
+        return invokeQueryResponseMessage(channelId, txId, GET_HISTORY_FOR_KEY, ChaincodeShim.GetHistoryForKey.newBuilder()
+                .setKey(key)
                 .build().toByteString());
     }
 
@@ -106,13 +152,25 @@ public class PeerMessageHandler {
         });
     }
 
+    /*
+     * The arguments are wrapped, not copied: they must not be modified until the message has
+     * been sent.
+     */
     CompletableFuture<Response> invokeChaincode(String channelId, String txId, String chaincodeName, List<byte[]> args) {
+        final List<ByteString> wrappedArgs = new ArrayList<>(args.size());
+        for (byte[] arg : args) {
+            wrappedArgs.add(UnsafeByteOperations.unsafeWrap(arg));
+        }
+        return invokeChaincodeWithArgs(channelId, txId, chaincodeName, wrappedArgs);
+    }
+
+    CompletableFuture<Response> invokeChaincodeWithArgs(String channelId, String txId, String chaincodeName, List<ByteString> args) {
         final Chaincode.ChaincodeSpec invocationSpec = org.hyperledger.fabric.protos.peer.Chaincode.ChaincodeSpec.newBuilder()
                 .setChaincodeId(org.hyperledger.fabric.protos.peer.Chaincode.ChaincodeID.newBuilder()
                         .setName(chaincodeName)
                         .build())
                 .setInput(org.hyperledger.fabric.protos.peer.Chaincode.ChaincodeInput.newBuilder()
-                        .addAllArgs(args.stream().map(ByteString::copyFrom).collect(Collectors.toList()))
+                        .addAllArgs(args)
                         .build())
                 .build();
 
@@ -120,6 +178,43 @@ public class PeerMessageHandler {
         return chatStream.sendMessage(message).thenApply(this::toResponse);
     }
 
+    static <T> CompletableFuture<Map<String, T>> allOf(Map<String, CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).thenApply(done -> {
+            Map<String, T> values = new LinkedHashMap<>(futures.size() * 4 / 3 + 1);
+            futures.forEach((key, future) -> values.put(key, future.join()));
+            return values;
+        });
+    }
+
+    /*
+     * Completes with the first unsuccessful response, in list order, or with the last one if
+     * all of them succeeded.
+     */
+    static CompletableFuture<Response> firstFailure(List<CompletableFuture<Response>> responses) {
+        return CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).thenApply(done -> {
+            Response last = new Response(Response.Status.SUCCESS, null, null);
+            for (CompletableFuture<Response> response : responses) {
+                last = response.join();
+                if (last.getStatus() != Response.Status.SUCCESS) {
+                    return last;
+                }
+            }
+            return last;
+        });
+    }
+
+    /*
+     * The peer answers a successful write with an empty RESPONSE and a failed one with an
+     * ERROR carrying the reason.
+     */
+    private static Response toWriteResponse(ByteString payload, Throwable error) {
+        if (error == null) {
+            return new Response(Response.Status.SUCCESS, null, null);
+        }
+        final Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return newErrorChaincodeResponse(cause.getMessage());
+    }
+
     private Response toResponse(ByteString bytes) {
         return toResponse(parseResponseFrom(bytes));
     }
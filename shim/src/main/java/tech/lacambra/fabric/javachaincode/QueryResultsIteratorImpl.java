@@ -0,0 +1,192 @@
+/*
+Copyright IBM Corp. All Rights Reserved.
+
+SPDX-License-Identifier: Apache-2.0
+*/
+
+package tech.lacambra.fabric.javachaincode;
+
+import io.vertx.core.Context;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResponse;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResultBytes;
+import tech.lacambra.fabric.javachaincode.ledger.AsyncQueryResultsIterator;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/*
+ * Iterates over the pages of a query. Up to prefetchDepth pages following the one being
+ * consumed are requested from the peer in the background, each QUERY_STATE_NEXT being sent
+ * as soon as the previous page arrived, so page boundaries do not stall the consumer.
+ */
+class QueryResultsIteratorImpl<T> implements AsyncQueryResultsIterator<T> {
+
+	private final PeerMessageHandler handler;
+	private final String channelId;
+	private final String txId;
+	private final Function<QueryResultBytes, T> mapper;
+	private final int prefetchDepth;
+	private final Deque<CompletableFuture<QueryResponse>> prefetchedPages;
+	private Iterator<QueryResultBytes> currentIterator;
+	private QueryResponse currentQueryResponse;
+	private boolean closed;
+
+	public QueryResultsIteratorImpl(final PeerMessageHandler handler, final String channelId, final String txId, final QueryResponse queryResponse, Function<QueryResultBytes, T> mapper) {
+		this(handler, channelId, txId, queryResponse, mapper, ChaincodeOptions.DEFAULT_QUERY_PREFETCH_DEPTH);
+	}
+
+	public QueryResultsIteratorImpl(final PeerMessageHandler handler, final String channelId, final String txId, final QueryResponse queryResponse, Function<QueryResultBytes, T> mapper,
+									final int prefetchDepth) {
+		this.handler = handler;
+		this.channelId = channelId;
+		this.txId = txId;
+		this.mapper = mapper;
+		this.prefetchDepth = prefetchDepth;
+		this.prefetchedPages = new ArrayDeque<>(Math.max(prefetchDepth, 1));
+		this.currentQueryResponse = queryResponse;
+		this.currentIterator = currentQueryResponse.getResultsList().iterator();
+		prefetch();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+
+			@Override
+			public boolean hasNext() {
+				// blocks until the next page is available if the current one is exhausted
+				while (!currentIterator.hasNext()) {
+					if (!currentQueryResponse.getHasMore()) return false;
+					moveTo(awaitNextPage());
+				}
+				return true;
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return mapper.apply(currentIterator.next());
+			}
+
+		};
+	}
+
+	@Override
+	public CompletableFuture<Void> forEachAsync(Consumer<? super T> action) {
+		final CompletableFuture<Void> done = new CompletableFuture<>();
+		consume(action, done);
+		return done;
+	}
+
+	private void consume(Consumer<? super T> action, CompletableFuture<Void> done) {
+		try {
+			while (true) {
+				while (currentIterator.hasNext()) {
+					action.accept(mapper.apply(currentIterator.next()));
+				}
+
+				if (!currentQueryResponse.getHasMore()) {
+					done.complete(null);
+					return;
+				}
+
+				final CompletableFuture<QueryResponse> page = nextPage();
+				if (!page.isDone()) {
+					// resume on the thread delivering the page instead of waiting for it
+					page.whenComplete((response, error) -> {
+						if (error != null) {
+							done.completeExceptionally(error);
+						} else {
+							moveTo(response);
+							consume(action, done);
+						}
+					});
+					return;
+				}
+				moveTo(page.join());
+			}
+		} catch (RuntimeException e) {
+			done.completeExceptionally(e);
+		}
+	}
+
+	/*
+	 * The pages are delivered on the event loop of the connection to the peer: waiting for
+	 * one on an event loop thread would never end, so it fails instead, leaving the page
+	 * to a later call.
+	 */
+	private QueryResponse awaitNextPage() {
+		final CompletableFuture<QueryResponse> page = nextPage();
+		if (!page.isDone() && Context.isOnEventLoopThread()) {
+			synchronized (this) {
+				prefetchedPages.addFirst(page);
+			}
+			throw new IllegalStateException("Cannot wait for the next page of a query on an event loop thread, use forEachAsync");
+		}
+		return page.join();
+	}
+
+	private synchronized CompletableFuture<QueryResponse> nextPage() {
+		final CompletableFuture<QueryResponse> page = prefetchedPages.pollFirst();
+		if (page != null) return page;
+		return handler.queryStateNext(channelId, txId, currentQueryResponse.getId());
+	}
+
+	private synchronized void moveTo(QueryResponse queryResponse) {
+		currentQueryResponse = queryResponse;
+		currentIterator = queryResponse.getResultsList().iterator();
+		prefetch();
+	}
+
+	/*
+	 * Extends the chain of requested pages up to prefetchDepth. A page is only requested
+	 * once the previous one arrived and announced more results, so the peer is never asked
+	 * past the end of the query. Called again whenever a requested page completes.
+	 */
+	private synchronized void prefetch() {
+		while (!closed && prefetchedPages.size() < prefetchDepth) {
+			final QueryResponse lastPage;
+			final CompletableFuture<QueryResponse> lastRequested = prefetchedPages.peekLast();
+
+			if (lastRequested == null) {
+				lastPage = currentQueryResponse;
+			} else if (lastRequested.isDone() && !lastRequested.isCompletedExceptionally()) {
+				lastPage = lastRequested.join();
+			} else {
+				return;
+			}
+
+			if (!lastPage.getHasMore()) return;
+
+			final CompletableFuture<QueryResponse> page = handler.queryStateNext(channelId, txId, lastPage.getId());
+			prefetchedPages.addLast(page);
+			page.thenRun(this::prefetch);
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> closeAsync() {
+		final String queryId;
+		synchronized (this) {
+			if (closed) return CompletableFuture.completedFuture(null);
+			closed = true;
+			queryId = currentQueryResponse.getId();
+			this.prefetchedPages.clear();
+			this.currentIterator = Collections.emptyIterator();
+			this.currentQueryResponse = QueryResponse.newBuilder().setHasMore(false).build();
+		}
+		return this.handler.queryStateClose(channelId, txId, queryId).thenApply(response -> null);
+	}
+
+	@Override
+	public void close() throws Exception {
+		closeAsync();
+	}
+
+}
@@ -0,0 +1,77 @@
+package tech.lacambra.fabric.javachaincode;
+
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResponse;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResultBytes;
+import tech.lacambra.fabric.javachaincode.ledger.QueryResultsPage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/*
+ * Pages are cut by the shim: the peer protocol has no page size nor bookmark, so the query
+ * is consumed until one result past the page is seen, then closed. Only the results of the
+ * page are kept in memory.
+ */
+class QueryResultsPageImpl<T> implements QueryResultsPage<T> {
+
+    private final List<T> results;
+    private final String bookmark;
+
+    private QueryResultsPageImpl(List<T> results, String bookmark) {
+        this.results = Collections.unmodifiableList(results);
+        this.bookmark = bookmark;
+    }
+
+    @Override
+    public List<T> getResults() {
+        return results;
+    }
+
+    @Override
+    public String getBookmark() {
+        return bookmark;
+    }
+
+    /*
+     * nextBookmark computes the bookmark of the following page from the last result of this
+     * one, it is only called when more results exist.
+     */
+    static <T> CompletableFuture<QueryResultsPage<T>> collect(PeerMessageHandler handler, String channelId, String txId,
+                                                             CompletableFuture<QueryResponse> query, Function<QueryResultBytes, T> mapper,
+                                                             int pageSize, Function<T, String> nextBookmark) {
+        final List<T> results = new ArrayList<>(Math.min(pageSize, 256));
+        return query
+                .thenCompose(response -> fill(handler, channelId, txId, response, mapper, pageSize, results))
+                .thenApply(more -> new QueryResultsPageImpl<>(results, more ? nextBookmark.apply(results.get(results.size() - 1)) : ""));
+    }
+
+    private static <T> CompletableFuture<Boolean> fill(PeerMessageHandler handler, String channelId, String txId, QueryResponse response,
+                                                       Function<QueryResultBytes, T> mapper, int pageSize, List<T> results) {
+        final Iterator<QueryResultBytes> iterator = response.getResultsList().iterator();
+        while (iterator.hasNext()) {
+            if (results.size() == pageSize) {
+                return close(handler, channelId, txId, response).thenApply(closed -> true);
+            }
+            results.add(mapper.apply(iterator.next()));
+        }
+
+        if (!response.getHasMore()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        // the peer announces more results whenever its batch is full, even if the query ends
+        // there: a full page only has a following one once the next batch brings a result
+        return handler.queryStateNext(channelId, txId, response.getId())
+                .thenCompose(next -> fill(handler, channelId, txId, next, mapper, pageSize, results));
+    }
+
+    private static CompletableFuture<?> close(PeerMessageHandler handler, String channelId, String txId, QueryResponse response) {
+        if (!response.getHasMore()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return handler.queryStateClose(channelId, txId, response.getId());
+    }
+}
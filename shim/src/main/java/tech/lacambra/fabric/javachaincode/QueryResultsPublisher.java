@@ -0,0 +1,227 @@
+package tech.lacambra.fabric.javachaincode;
+
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResponse;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResultBytes;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Streams the results of a range, rich or history query to a single subscriber. The query is
+ * only started on the first request and every following page is only requested from the
+ * peer when the subscriber has outstanding demand, so at most one page is held in memory.
+ * Cancelling the subscription closes the query on the peer.
+ * <p>
+ * Results are emitted on the thread delivering the pages, subscribers must not block.
+ */
+class QueryResultsPublisher<T> implements Publisher<T> {
+
+    private final PeerMessageHandler handler;
+    private final String channelId;
+    private final String txId;
+    private final Supplier<CompletableFuture<QueryResponse>> query;
+    private final Function<QueryResultBytes, T> mapper;
+    private final AtomicBoolean subscribed;
+
+    QueryResultsPublisher(PeerMessageHandler handler, String channelId, String txId,
+                          Supplier<CompletableFuture<QueryResponse>> query, Function<QueryResultBytes, T> mapper) {
+        this.handler = handler;
+        this.channelId = channelId;
+        this.txId = txId;
+        this.query = query;
+        this.mapper = mapper;
+        this.subscribed = new AtomicBoolean();
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber cannot be null");
+        }
+
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Query results can only be consumed by a single subscriber"));
+            return;
+        }
+
+        QuerySubscription subscription = new QuerySubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private class QuerySubscription implements Subscription {
+
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong requested;
+        private final AtomicInteger wip;
+        private final AtomicBoolean closed;
+        private volatile boolean cancelled;
+        private volatile boolean fetching;
+        private volatile Page page;
+        private volatile Throwable error;
+        private boolean terminated;
+
+        private QuerySubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+            this.requested = new AtomicLong();
+            this.wip = new AtomicInteger();
+            this.closed = new AtomicBoolean();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested " + n + " elements, the demand must be positive");
+            } else {
+                requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        /*
+         * Serialises all the signals to the subscriber: whichever thread increments wip
+         * from 0 emits, the others only record that another pass is needed.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            do {
+                if (!terminated) {
+                    emit();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            if (cancelled) {
+                terminate();
+                return;
+            }
+
+            if (error != null) {
+                terminate();
+                subscriber.onError(error);
+                return;
+            }
+
+            long demand = requested.get();
+            long emitted = 0;
+            final Page current = page;
+            final Iterator<QueryResultBytes> results = current == null ? null : current.results;
+
+            while (results != null && emitted != demand && results.hasNext() && !cancelled) {
+                final T result;
+                try {
+                    result = mapper.apply(results.next());
+                } catch (RuntimeException e) {
+                    // the query cannot be consumed any further, release it and report why
+                    cancelled = true;
+                    terminate();
+                    subscriber.onError(e);
+                    return;
+                }
+
+                try {
+                    subscriber.onNext(result);
+                } catch (RuntimeException e) {
+                    // rule 2.13: a throwing subscriber is considered cancelled
+                    cancelled = true;
+                    terminate();
+                    return;
+                }
+                emitted++;
+            }
+
+            if (emitted != 0 && demand != Long.MAX_VALUE) {
+                demand = requested.addAndGet(-emitted);
+            }
+
+            if (cancelled) {
+                terminate();
+                return;
+            }
+
+            if (results != null && !results.hasNext() && !current.response.getHasMore()) {
+                terminated = true;
+                subscriber.onComplete();
+                return;
+            }
+
+            if (demand > 0 && !fetching && (results == null || !results.hasNext())) {
+                fetching = true;
+                final CompletableFuture<QueryResponse> nextPage = current == null
+                        ? query.get()
+                        : handler.queryStateNext(channelId, txId, current.response.getId());
+
+                nextPage.whenComplete((response, failure) -> {
+                    if (failure != null) {
+                        error = failure;
+                    } else if (cancelled) {
+                        closeQuery(response);
+                    } else {
+                        page = new Page(response);
+                    }
+                    fetching = false;
+                    drain();
+                });
+            }
+        }
+
+        /*
+         * Releases the iterator held by the peer if the query has not been consumed until
+         * its last page. A page still in flight is answered before the close, as both go
+         * through the same transaction queue; if the subscription is cancelled before the
+         * first page arrived, the query is closed when that page arrives.
+         */
+        private void terminate() {
+            terminated = true;
+            final Page current = page;
+            if (cancelled && current != null) {
+                closeQuery(current.response);
+            }
+        }
+
+        private void closeQuery(QueryResponse lastPage) {
+            if (lastPage.getHasMore() && closed.compareAndSet(false, true)) {
+                handler.queryStateClose(channelId, txId, lastPage.getId());
+            }
+        }
+    }
+
+    private static class Page {
+
+        private final QueryResponse response;
+        private final Iterator<QueryResultBytes> results;
+
+        private Page(QueryResponse response) {
+            this.response = response;
+            this.results = response.getResultsList().iterator();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Values read by a single transaction. Every distinct key is requested from the peer once;
+ * concurrent reads of a key that is still in flight share the same pending future.
+ */
+class ReadCache {
+
+    private final ConcurrentMap<String, CompletableFuture<ByteString>> reads;
+
+    ReadCache() {
+        reads = new ConcurrentHashMap<>();
+    }
+
+    CompletableFuture<ByteString> get(String key, Function<String, CompletableFuture<ByteString>> loader) {
+        CompletableFuture<ByteString> cached = reads.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<ByteString> read = new CompletableFuture<>();
+        cached = reads.putIfAbsent(key, read);
+        if (cached != null) {
+            return cached;
+        }
+
+        load(loader, key).whenComplete((value, error) -> {
+            if (error != null) {
+                // do not keep failures, a later read can try again
+                reads.remove(key, read);
+                read.completeExceptionally(error);
+            } else {
+                read.complete(value);
+            }
+        });
+
+        return read;
+    }
+
+    /*
+     * Bulk variant of get: the keys neither cached nor in flight are requested with a
+     * single call to the loader.
+     */
+    Map<String, CompletableFuture<ByteString>> getAll(Collection<String> keys,
+                                                      Function<Collection<String>, CompletableFuture<Map<String, ByteString>>> loader) {
+        Map<String, CompletableFuture<ByteString>> result = new LinkedHashMap<>();
+        Map<String, CompletableFuture<ByteString>> missing = new LinkedHashMap<>();
+
+        for (String key : keys) {
+            if (result.containsKey(key)) {
+                continue;
+            }
+            CompletableFuture<ByteString> cached = reads.get(key);
+            if (cached == null) {
+                CompletableFuture<ByteString> read = new CompletableFuture<>();
+                cached = reads.putIfAbsent(key, read);
+                if (cached == null) {
+                    cached = read;
+                    missing.put(key, read);
+                }
+            }
+            result.put(key, cached);
+        }
+
+        if (!missing.isEmpty()) {
+            load(loader, missing.keySet()).whenComplete((values, error) -> missing.forEach((key, read) -> {
+                if (error != null) {
+                    reads.remove(key, read);
+                    read.completeExceptionally(error);
+                } else {
+                    // a key the loader did not return does not exist, as for a single read
+                    final ByteString value = values.get(key);
+                    read.complete(value != null ? value : ByteString.EMPTY);
+                }
+            }));
+        }
+
+        return result;
+    }
+
+    /*
+     * A loader throwing instead of returning a failed future must not leave the pending
+     * reads in the cache, every later read of their keys would wait forever.
+     */
+    private static <K, V> CompletableFuture<V> load(Function<K, CompletableFuture<V>> loader, K keys) {
+        try {
+            return loader.apply(keys);
+        } catch (RuntimeException e) {
+            final CompletableFuture<V> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    void invalidate(String key) {
+        reads.remove(key);
+    }
+}
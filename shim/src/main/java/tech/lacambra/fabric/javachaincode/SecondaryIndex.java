@@ -0,0 +1,134 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import tech.lacambra.fabric.javachaincode.ledger.AsyncQueryResultsIterator;
+import tech.lacambra.fabric.javachaincode.ledger.CompositeKey;
+import tech.lacambra.fabric.javachaincode.ledger.CompositeKeyValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Declares a secondary index maintained by the shim. For every state key accepted by the key
+ * filter, the index holds one entry whose composite key is made of the object type of the
+ * index, the attributes extracted from the value and the state key itself:
+ * <pre>
+ * new SecondaryIndex("owner~car")
+ *         .forKeys(key -&gt; key.startsWith("CAR"))
+ *         .attribute(value -&gt; parseCar(value).getOwner());
+ * </pre>
+ * Once registered with {@link ChaincodeOptions#addSecondaryIndex(SecondaryIndex)},
+ * {@link AsyncChaincodeStub#putState(String, byte[])} and {@link AsyncChaincodeStub#delState(String)}
+ * read the previous value of an indexed key and only write or delete the entries whose
+ * attributes changed. As a consequence, indexed keys are part of the read set of the
+ * transactions writing them. A key written several times in the same transaction is diffed
+ * against the value written last.
+ * <p>
+ * A value for which an extractor returns {@code null} is not indexed.
+ */
+public class SecondaryIndex {
+
+    static final ByteString ENTRY_VALUE = ByteString.copyFrom(new byte[]{0x00});
+    private static final String COMPOSITE_KEY_NAMESPACE = String.valueOf((char) Character.MIN_CODE_POINT);
+
+    private final String objectType;
+    private final List<Function<byte[], String>> attributes;
+    private Predicate<String> keyFilter;
+
+    public SecondaryIndex(String objectType) {
+        // fails fast on object types that are not valid composite key segments
+        this.objectType = new CompositeKey(objectType).getObjectType();
+        this.attributes = new ArrayList<>();
+        this.keyFilter = key -> !key.startsWith(COMPOSITE_KEY_NAMESPACE);
+    }
+
+    public String getObjectType() {
+        return objectType;
+    }
+
+    /**
+     * Restricts the index to the state keys accepted by the given filter. By default, all the
+     * keys written by the chaincode are indexed except composite keys, which include the
+     * entries of the indexes themselves.
+     *
+     * @param keyFilter the filter of the indexed keys
+     * @return a reference to this, so the API can be used fluently
+     */
+    public SecondaryIndex forKeys(Predicate<String> keyFilter) {
+        if (keyFilter == null) {
+            throw new NullPointerException("keyFilter cannot be null");
+        }
+        this.keyFilter = keyFilter;
+        return this;
+    }
+
+    /**
+     * Appends an attribute to the entries of the index. Lookups match the attributes in the
+     * order they were added.
+     *
+     * @param extractor extracts the attribute from a state value
+     * @return a reference to this, so the API can be used fluently
+     */
+    public SecondaryIndex attribute(Function<byte[], String> extractor) {
+        if (extractor == null) {
+            throw new NullPointerException("extractor cannot be null");
+        }
+        attributes.add(extractor);
+        return this;
+    }
+
+    /**
+     * Returns the entries of the index matching the given leading attributes. The state key
+     * of each entry is returned by {@link #getIndexedKey(CompositeKeyValue)}.
+     *
+     * @param stub       the stub of the current transaction
+     * @param attributes values of the first attributes of the index, possibly none
+     * @return an {@link Iterable} of the matching entries
+     */
+    public CompletableFuture<AsyncQueryResultsIterator<CompositeKeyValue>> lookup(AsyncChaincodeStub stub, String... attributes) {
+        if (attributes.length > this.attributes.size()) {
+            throw new IllegalArgumentException(String.format("Index %s has %d attributes, %d given", objectType, this.attributes.size(), attributes.length));
+        }
+        return stub.getStateByPartialCompositeKey(new CompositeKey(objectType, attributes));
+    }
+
+    /**
+     * Returns the state key referenced by an entry returned by
+     * {@link #lookup(AsyncChaincodeStub, String...)}.
+     *
+     * @param entry an index entry
+     * @return the indexed state key
+     */
+    public static String getIndexedKey(CompositeKeyValue entry) {
+        final List<String> attributes = entry.getCompositeKey().getAttributes();
+        return attributes.get(attributes.size() - 1);
+    }
+
+    boolean covers(String key) {
+        return keyFilter.test(key);
+    }
+
+    /*
+     * The key of the entry indexing the given value, or null if the value is absent or one
+     * of its attributes is.
+     */
+    String entryKey(String key, byte[] value) {
+        if (value == null) {
+            return null;
+        }
+
+        final String[] segments = new String[attributes.size() + 1];
+        for (int i = 0; i < attributes.size(); i++) {
+            segments[i] = attributes.get(i).apply(value);
+            if (segments[i] == null) {
+                return null;
+            }
+        }
+        segments[attributes.size()] = key;
+        return new CompositeKey(objectType, Arrays.asList(segments)).toString();
+    }
+}
@@ -0,0 +1,216 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import io.vertx.core.WorkerExecutor;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+import tech.lacambra.fabric.javachaincode.metrics.Counter;
+import tech.lacambra.fabric.javachaincode.metrics.MetricsRegistry;
+import tech.lacambra.fabric.javachaincode.metrics.Timer;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executes the INIT and TRANSACTION messages pushed by the peer. Each transaction runs on
+ * a worker of a bounded pool, so the thread receiving the messages is never blocked by
+ * chaincode logic and independent transactions execute in parallel. The COMPLETED or
+ * ERROR reply is sent when the stage returned by {@link Chaincode#initAsync} or
+ * {@link Chaincode#invokeAsync} completes.
+ * <p>
+ * Every transaction is timed from its arrival to its reply and tagged with its message type
+ * and function name; failed transactions are also counted, so the error rate of a function
+ * is its error count over its transaction count.
+ */
+class TransactionDispatcher {
+
+    private static final Logger logger = Logger.getLogger(TransactionDispatcher.class.getName());
+
+    /*
+     * Function names are chosen by the clients, past this many distinct names the remaining
+     * ones share a single series instead of growing the registry without bound.
+     */
+    private static final int MAX_TAGGED_FUNCTIONS = 256;
+    private static final String OTHER_FUNCTION = "other";
+    private static final String UNKNOWN_FUNCTION = "unknown";
+    private static final int FUNCTION_TAG = org.hyperledger.fabric.protos.peer.Chaincode.ChaincodeInput.ARGS_FIELD_NUMBER << 3
+            | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+    private final Chaincode chaincode;
+    private final ChatStream chatStream;
+    private final ChaincodeOptions options;
+    private final PeerMessageHandler handler;
+    private final ClientIdentityCache clientIdentities;
+    private final WorkerExecutor workerExecutor;
+    private final MetricsRegistry metrics;
+    private final boolean metricsEnabled;
+    private final ConcurrentMap<String, Timer> transactionTimers;
+    private final ConcurrentMap<String, Counter> transactionErrors;
+
+    TransactionDispatcher(Chaincode chaincode, ChatStream chatStream, ChaincodeOptions options, WorkerExecutor workerExecutor) {
+        this.chaincode = chaincode;
+        this.chatStream = chatStream;
+        this.options = options;
+        this.handler = new PeerMessageHandler(chatStream);
+        this.clientIdentities = new ClientIdentityCache(options.getClientIdentityCacheSize());
+        this.workerExecutor = workerExecutor;
+        this.metrics = options.getMetricsRegistry();
+        this.metricsEnabled = metrics != MetricsRegistry.NOOP;
+        this.transactionTimers = new ConcurrentHashMap<>();
+        this.transactionErrors = new ConcurrentHashMap<>();
+    }
+
+    void dispatch(ChaincodeMessage message) {
+        final long received = System.nanoTime();
+        workerExecutor.<Void>executeBlocking(
+                future -> {
+                    execute(message).whenComplete((completion, error) -> reply(message, received, error == null
+                            ? completion
+                            : MessageFactory.newErrorEventMessage(message.getChannelId(), message.getTxid(), unwrap(error))));
+                    future.complete();
+                },
+                false,
+                result -> {
+                    if (result.failed()) {
+                        reply(message, received, MessageFactory.newErrorEventMessage(message.getChannelId(), message.getTxid(), result.cause()));
+                    }
+                });
+    }
+
+    /*
+     * Sends the COMPLETED or ERROR message closing the transaction. Every transaction is
+     * recorded here, including the ones failing before the chaincode is reached.
+     */
+    private void reply(ChaincodeMessage message, long received, ChaincodeMessage reply) {
+        if (metricsEnabled) {
+            record(message.getType(), functionName(message.getPayload()), received, reply.getType() == ChaincodeMessage.Type.ERROR);
+        }
+        chatStream.send(reply);
+    }
+
+    /*
+     * Reads the first argument of the ChaincodeInput without decoding the others, the
+     * stub has not necessarily been built when the transaction is recorded. Transactions
+     * without arguments or with an invalid payload are recorded as unknown.
+     */
+    private static String functionName(ByteString payload) {
+        try {
+            final CodedInputStream input = payload.newCodedInput();
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                if (tag == FUNCTION_TAG) {
+                    return input.readBytes().toStringUtf8();
+                }
+                if (!input.skipField(tag)) {
+                    break;
+                }
+            }
+            return UNKNOWN_FUNCTION;
+        } catch (IOException e) {
+            return UNKNOWN_FUNCTION;
+        }
+    }
+
+    /*
+     * Runs the chaincode up to the point where it hands back its response stage. The
+     * worker is released right after, so transactions waiting on the peer do not hold
+     * any thread of the pool.
+     */
+    private CompletionStage<ChaincodeMessage> execute(ChaincodeMessage message) {
+        final String channelId = message.getChannelId();
+        final String txId = message.getTxid();
+
+        try {
+            final org.hyperledger.fabric.protos.peer.Chaincode.ChaincodeInput input =
+                    org.hyperledger.fabric.protos.peer.Chaincode.ChaincodeInput.parseFrom(message.getPayload());
+
+            final AsyncChaincodeStubImpl stub = new AsyncChaincodeStubImpl(
+                    channelId,
+                    txId,
+                    handler,
+                    input.getArgsList(),
+                    message.hasProposal() ? message.getProposal() : null,
+                    options,
+                    clientIdentities
+            );
+
+            final CompletionStage<Response> response = message.getType() == ChaincodeMessage.Type.INIT
+                    ? chaincode.initAsync(stub)
+                    : chaincode.invokeAsync(stub);
+
+            if (response == null) {
+                return CompletableFuture.completedFuture(MessageFactory.newErrorEventMessage(channelId, txId, "Chaincode returned no response"));
+            }
+
+            return response.thenCompose(result -> flushWrites(stub, result)).handle((result, error) -> {
+                if (error != null) {
+                    logger.log(Level.WARNING, "[execute] Transaction " + txId + " failed", unwrap(error));
+                    return MessageFactory.newErrorEventMessage(channelId, txId, unwrap(error));
+                }
+                return toCompletionMessage(channelId, txId, result, stub);
+            });
+
+        } catch (InvalidProtocolBufferException | RuntimeException e) {
+            logger.log(Level.WARNING, "[execute] Transaction " + txId + " failed", e);
+            return CompletableFuture.completedFuture(MessageFactory.newErrorEventMessage(channelId, txId, e));
+        }
+    }
+
+    private void record(ChaincodeMessage.Type type, String function, long received, boolean failed) {
+        final long elapsed = System.nanoTime() - received;
+        String key = type.name() + ' ' + function;
+        final String name;
+        if (transactionTimers.size() < MAX_TAGGED_FUNCTIONS || transactionTimers.containsKey(key)) {
+            name = function;
+        } else {
+            name = OTHER_FUNCTION;
+            key = type.name() + ' ' + OTHER_FUNCTION;
+        }
+
+        transactionTimers.computeIfAbsent(key, k -> metrics.timer("chaincode.transactions", "type", type.name(), "function", name))
+                .record(elapsed);
+        if (failed) {
+            transactionErrors.computeIfAbsent(key, k -> metrics.counter("chaincode.transaction.errors", "type", type.name(), "function", name))
+                    .increment();
+        }
+    }
+
+    /*
+     * Buffered writes are only sent for successful transactions, the peer discards the
+     * write set of a failed one anyway. A rejected write turns the response into its error.
+     */
+    private CompletionStage<Response> flushWrites(AsyncChaincodeStubImpl stub, Response response) {
+        if (response == null || response.getStatus() != Response.Status.SUCCESS) {
+            return CompletableFuture.completedFuture(response);
+        }
+        return stub.flushWrites().thenApply(flushed -> flushed.getStatus() == Response.Status.SUCCESS ? response : flushed);
+    }
+
+    private ChaincodeMessage toCompletionMessage(String channelId, String txId, Response response, AsyncChaincodeStub stub) {
+        if (response == null) {
+            return MessageFactory.newErrorEventMessage(channelId, txId, "Chaincode returned no response");
+        }
+
+        if (response.getStatus() == Response.Status.SUCCESS) {
+            return MessageFactory.newCompletedEventMessage(channelId, txId, response, stub.getEvent());
+        }
+
+        final String errorMessage = response.getMessage() == null ? response.getStatus().name() : response.getMessage();
+        return MessageFactory.newErrorEventMessage(channelId, txId, errorMessage, stub.getEvent());
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+}
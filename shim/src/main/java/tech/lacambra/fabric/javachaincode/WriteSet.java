@@ -0,0 +1,91 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes of a single transaction kept in memory until the transaction completes. Only
+ * the last write of every key is retained, so a key updated several times costs a single
+ * PUT_STATE or DEL_STATE message when the write set is flushed.
+ * <p>
+ * A write set holds the writes of either the public state or a single private data
+ * collection.
+ */
+class WriteSet {
+
+    private final String collection;
+    private final Map<String, Write> writes;
+
+    WriteSet() {
+        this("");
+    }
+
+    WriteSet(String collection) {
+        this.collection = collection;
+        this.writes = new ConcurrentHashMap<>();
+    }
+
+    void put(String key, ByteString value) {
+        writes.put(key, new Write(value));
+    }
+
+    void delete(String key) {
+        writes.put(key, Write.DELETE);
+    }
+
+    boolean contains(String key) {
+        return writes.containsKey(key);
+    }
+
+    /*
+     * Returns the buffered value of the key, or an empty value if the key has been
+     * deleted, which is what the peer answers for a missing key.
+     */
+    ByteString get(String key) {
+        Write write = writes.get(key);
+        if (write == null || write.isDelete()) {
+            return ByteString.EMPTY;
+        }
+        return write.value;
+    }
+
+    /*
+     * Sends every buffered write and completes with the first unsuccessful response, or a
+     * successful one if all the writes were accepted. Every write is removed as it is sent:
+     * a key written again meanwhile keeps its newer write buffered for the next flush.
+     */
+    CompletableFuture<Response> flush(PeerMessageHandler handler, String channelId, String txId) {
+        List<CompletableFuture<Response>> pending = new ArrayList<>(writes.size());
+
+        writes.forEach((key, write) -> {
+            if (!writes.remove(key, write)) {
+                return;
+            }
+            pending.add(write.isDelete()
+                    ? handler.deleteState(channelId, txId, collection, key)
+                    : handler.putState(channelId, txId, collection, key, write.value));
+        });
+
+        return PeerMessageHandler.firstFailure(pending);
+    }
+
+    private static class Write {
+
+        private static final Write DELETE = new Write(null);
+
+        private final ByteString value;
+
+        private Write(ByteString value) {
+            this.value = value;
+        }
+
+        private boolean isDelete() {
+            return this == DELETE;
+        }
+    }
+}
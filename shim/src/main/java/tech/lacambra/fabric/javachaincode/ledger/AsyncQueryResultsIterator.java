@@ -0,0 +1,34 @@
+package tech.lacambra.fabric.javachaincode.ledger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A {@link QueryResultsIterator} that can also be consumed without blocking. The pages of the
+ * query are fetched in the background while the results of the current page are consumed.
+ * <p>
+ * The {@link java.util.Iterator} of this iterable blocks in {@code hasNext} and {@code next}
+ * until the next page arrives. The peer answers on the event loop, which is also the thread
+ * completing the futures of the stub: iterating there would wait forever, so
+ * {@code hasNext} throws an {@link IllegalStateException} instead. Use
+ * {@link #forEachAsync(Consumer)} from the callbacks of the stub.
+ */
+public interface AsyncQueryResultsIterator<T> extends QueryResultsIterator<T> {
+
+    /**
+     * Performs the given action for each remaining result. The action is run on the thread
+     * completing each page, so it should not block.
+     *
+     * @param action the action to perform for each result
+     * @return a future completed once all the results have been consumed
+     */
+    CompletableFuture<Void> forEachAsync(Consumer<? super T> action);
+
+    /**
+     * Closes the query on the peer.
+     *
+     * @return a future completed when the peer acknowledged the close
+     */
+    CompletableFuture<Void> closeAsync();
+
+}
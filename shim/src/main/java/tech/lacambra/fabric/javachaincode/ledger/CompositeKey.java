@@ -0,0 +1,137 @@
+/*
+Copyright IBM Corp. All Rights Reserved.
+
+SPDX-License-Identifier: Apache-2.0
+*/
+
+package tech.lacambra.fabric.javachaincode.ledger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CompositeKey {
+
+	private static final char DELIMITER_CHAR = (char) Character.MIN_CODE_POINT;
+	private static final String DELIMITER = String.valueOf(DELIMITER_CHAR);
+	static final String NAMESPACE = DELIMITER;
+	private static final String INVALID_SEGMENT_CHAR = new String(Character.toChars(Character.MAX_CODE_POINT));
+	private static final char INVALID_SEGMENT_HIGH_SURROGATE = INVALID_SEGMENT_CHAR.charAt(0);
+	private static final char INVALID_SEGMENT_LOW_SURROGATE = INVALID_SEGMENT_CHAR.charAt(1);
+
+	final String objectType;
+	final List<String> attributes;
+	final String compositeKey;
+
+	public CompositeKey(String objectType, String... attributes) {
+		this(objectType, attributes == null ? Collections.emptyList() : Arrays.asList(attributes));
+	}
+
+	public CompositeKey(String objectType, List<String> attributes) {
+		if (objectType == null) throw new NullPointerException("objectType cannot be null");
+		this.objectType = objectType;
+		this.attributes = attributes;
+		this.compositeKey = generateCompositeKeyString(objectType, attributes);
+	}
+
+	/*
+	 * Segments split from a composite key, hence free of delimiters: the key is kept as is
+	 * rather than validated and formatted again.
+	 */
+	private CompositeKey(String objectType, List<String> attributes, String compositeKey) {
+		this.objectType = objectType;
+		this.attributes = attributes;
+		this.compositeKey = compositeKey;
+	}
+
+	public String getObjectType() {
+		return objectType;
+	}
+
+	public List<String> getAttributes() {
+		return attributes;
+	}
+
+	@Override
+	public String toString() {
+		return compositeKey;
+	}
+
+	public static CompositeKey parseCompositeKey(String compositeKey) {
+		if (compositeKey == null) return null;
+		if (!compositeKey.startsWith(NAMESPACE)) throw CompositeKeyFormatException.forInputString(compositeKey, compositeKey, 0);
+
+		// relying on the fact that NAMESPACE == DELIMETER: every segment is terminated by a delimiter
+		final List<String> segments = new ArrayList<>();
+		int start = NAMESPACE.length();
+		int end;
+		while ((end = compositeKey.indexOf(DELIMITER_CHAR, start)) >= 0) {
+			segments.add(compositeKey.substring(start, end));
+			start = end + 1;
+		}
+		if (start < compositeKey.length()) {
+			segments.add(compositeKey.substring(start));
+		}
+		if (segments.isEmpty()) throw CompositeKeyFormatException.forInputString(compositeKey, compositeKey, 0);
+
+		return new CompositeKey(segments.get(0), segments.subList(1, segments.size()), compositeKey);
+	}
+
+	/**
+	 * To ensure that simple keys do not go into composite key namespace,
+	 * we validate simple key to check whether the key starts with 0x00 (which
+	 * is the namespace for compositeKey). This helps in avoding simple/composite
+	 * key collisions.
+	 *
+	 * @throws CompositeKeyFormatException if First character of the key
+	 */
+	public static void validateSimpleKeys(String... keys) {
+		for (String key : keys) {
+			if(!key.isEmpty() && key.startsWith(NAMESPACE)) {
+				throw CompositeKeyFormatException.forSimpleKey(key);
+			}
+		}
+	}
+
+	private String generateCompositeKeyString(String objectType, List<String> attributes) {
+
+		// object type must be a valid composite key segment
+		validateCompositeKeySegment(objectType);
+		int length = NAMESPACE.length() + objectType.length() + 1;
+
+		if (attributes != null) {
+			// the attributes must be valid composite key segments
+			for (String attribute : attributes) {
+				validateCompositeKeySegment(attribute);
+				length += attribute.length() + 1;
+			}
+		}
+
+		// NAMESPACE + objectType + DELIMITER + (attribute + DELIMITER)*
+		final StringBuilder builder = new StringBuilder(length)
+				.append(NAMESPACE)
+				.append(objectType)
+				.append(DELIMITER_CHAR);
+		if (attributes != null) {
+			for (String attribute : attributes) {
+				builder.append(attribute).append(DELIMITER_CHAR);
+			}
+		}
+		return builder.toString();
+	}
+
+	private void validateCompositeKeySegment(String segment) {
+		final int length = segment.length();
+		for (int i = 0; i < length; i++) {
+			final char c = segment.charAt(i);
+			if (c == DELIMITER_CHAR) {
+				throw CompositeKeyFormatException.forInputString(segment, DELIMITER, i);
+			}
+			if (c == INVALID_SEGMENT_HIGH_SURROGATE && i + 1 < length && segment.charAt(i + 1) == INVALID_SEGMENT_LOW_SURROGATE) {
+				throw CompositeKeyFormatException.forInputString(segment, INVALID_SEGMENT_CHAR, i);
+			}
+		}
+	}
+
+}
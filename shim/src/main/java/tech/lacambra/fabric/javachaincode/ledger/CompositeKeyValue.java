@@ -0,0 +1,17 @@
+package tech.lacambra.fabric.javachaincode.ledger;
+
+/**
+ * A {@link KeyValue} whose key is a {@link CompositeKey}, as returned by partial composite key
+ * queries.
+ */
+public interface CompositeKeyValue extends KeyValue {
+
+    /**
+     * Returns the key split into its object type and attributes. The key is only split on the
+     * first call, so results whose attributes are not read do not pay for it.
+     *
+     * @return the composite key of this result
+     */
+    CompositeKey getCompositeKey();
+
+}
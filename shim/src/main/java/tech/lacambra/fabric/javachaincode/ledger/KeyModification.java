@@ -6,6 +6,8 @@ SPDX-License-Identifier: Apache-2.0
 
 package tech.lacambra.fabric.javachaincode.ledger;
 
+import java.nio.ByteBuffer;
+
 public interface KeyModification {
 
 	/**
@@ -22,6 +24,14 @@ public interface KeyModification {
 	 */
 	byte[] getValue();
 
+	/**
+	 * Returns the key's value at the time returned by {@link #getTimestamp()},
+	 * without copying it.
+	 *
+	 * @return a read-only view of the value
+	 */
+	ByteBuffer getValueBuffer();
+
 	/**
 	 * Returns the key's value at the time returned by {@link #getTimestamp()},
 	 * decoded as a UTF-8 string.
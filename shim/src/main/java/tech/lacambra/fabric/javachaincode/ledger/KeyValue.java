@@ -6,6 +6,8 @@ SPDX-License-Identifier: Apache-2.0
 
 package tech.lacambra.fabric.javachaincode.ledger;
 
+import java.nio.ByteBuffer;
+
 /**
  * Query Result associating a state key with a value.
  *
@@ -26,6 +28,13 @@ public interface KeyValue {
 	 */
 	byte[] getValue();
 
+	/**
+	 * Returns the state value, without copying it.
+	 *
+	 * @return a read-only view of the value
+	 */
+	ByteBuffer getValueBuffer();
+
 	/**
 	 * Returns the state value, decoded as a UTF-8 string.
 	 *
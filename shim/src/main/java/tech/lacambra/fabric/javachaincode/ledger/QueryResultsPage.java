@@ -0,0 +1,33 @@
+package tech.lacambra.fabric.javachaincode.ledger;
+
+import java.util.List;
+
+/**
+ * A bounded page of query results, along with the bookmark of the next page.
+ */
+public interface QueryResultsPage<T> {
+
+    /**
+     * Returns the results of this page, at most the requested page size.
+     *
+     * @return the results in query order
+     */
+    List<T> getResults();
+
+    /**
+     * Returns the bookmark to pass to fetch the page following this one.
+     *
+     * @return the bookmark of the next page, an empty string if this page is the last one
+     */
+    String getBookmark();
+
+    /**
+     * Returns whether results follow this page.
+     *
+     * @return true if the bookmark points to a next page
+     */
+    default boolean hasMore() {
+        return !getBookmark().isEmpty();
+    }
+
+}
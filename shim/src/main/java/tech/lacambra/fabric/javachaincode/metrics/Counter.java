@@ -0,0 +1,12 @@
+package tech.lacambra.fabric.javachaincode.metrics;
+
+/**
+ * A monotonically increasing count.
+ */
+public interface Counter {
+
+    void increment();
+
+    long count();
+
+}
@@ -0,0 +1,17 @@
+package tech.lacambra.fabric.javachaincode.metrics;
+
+/**
+ * Records the distribution of a value that is not a duration, exposed as a count, a total and
+ * a maximum.
+ */
+public interface DistributionSummary {
+
+    void record(long value);
+
+    long count();
+
+    long total();
+
+    long max();
+
+}
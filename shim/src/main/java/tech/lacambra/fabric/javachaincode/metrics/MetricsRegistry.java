@@ -0,0 +1,43 @@
+package tech.lacambra.fabric.javachaincode.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Creates and holds the meters of the shim. Meters are identified by a dotted name and by
+ * tags given as alternating keys and values; asking twice for the same meter returns the same
+ * instance, so callers on hot paths look their meters up once and keep them.
+ * <p>
+ * {@link #NOOP} discards everything and is the default. {@link SimpleMetricsRegistry} keeps
+ * the meters in memory and renders them in the Prometheus text format; other monitoring
+ * systems can be plugged in by implementing this interface.
+ */
+public interface MetricsRegistry {
+
+    /**
+     * A registry whose meters record nothing.
+     */
+    MetricsRegistry NOOP = new NoopMetricsRegistry();
+
+    Counter counter(String name, String... tags);
+
+    Timer timer(String name, String... tags);
+
+    DistributionSummary summary(String name, String... tags);
+
+    /**
+     * Registers a gauge sampled whenever the registry is scraped.
+     *
+     * @param name  the gauge name
+     * @param value supplies the current value
+     * @param tags  alternating tag keys and values
+     */
+    void gauge(String name, LongSupplier value, String... tags);
+
+    /**
+     * Renders the current value of every meter in the Prometheus text exposition format.
+     *
+     * @return the exposition, empty if the registry does not support it
+     */
+    String scrape();
+
+}
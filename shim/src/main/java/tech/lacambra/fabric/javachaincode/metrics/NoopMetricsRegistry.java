@@ -0,0 +1,83 @@
+package tech.lacambra.fabric.javachaincode.metrics;
+
+import java.util.function.LongSupplier;
+
+class NoopMetricsRegistry implements MetricsRegistry {
+
+    private static final Counter COUNTER = new Counter() {
+        @Override
+        public void increment() {
+        }
+
+        @Override
+        public long count() {
+            return 0;
+        }
+    };
+
+    private static final Timer TIMER = new Timer() {
+        @Override
+        public void record(long nanos) {
+        }
+
+        @Override
+        public long count() {
+            return 0;
+        }
+
+        @Override
+        public long totalNanos() {
+            return 0;
+        }
+
+        @Override
+        public long maxNanos() {
+            return 0;
+        }
+    };
+
+    private static final DistributionSummary SUMMARY = new DistributionSummary() {
+        @Override
+        public void record(long value) {
+        }
+
+        @Override
+        public long count() {
+            return 0;
+        }
+
+        @Override
+        public long total() {
+            return 0;
+        }
+
+        @Override
+        public long max() {
+            return 0;
+        }
+    };
+
+    @Override
+    public Counter counter(String name, String... tags) {
+        return COUNTER;
+    }
+
+    @Override
+    public Timer timer(String name, String... tags) {
+        return TIMER;
+    }
+
+    @Override
+    public DistributionSummary summary(String name, String... tags) {
+        return SUMMARY;
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value, String... tags) {
+    }
+
+    @Override
+    public String scrape() {
+        return "";
+    }
+}
@@ -0,0 +1,205 @@
+package tech.lacambra.fabric.javachaincode.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the meters in memory and renders them in the Prometheus text exposition format.
+ * Counters are exposed with a <code>_total</code> suffix, timers as summaries in seconds with a
+ * <code>_max</code> gauge, and dots in names are replaced by underscores.
+ * <p>
+ * Updating a meter is lock free; the maximum of a timer or summary is the maximum since the
+ * registry was created.
+ */
+public class SimpleMetricsRegistry implements MetricsRegistry {
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name, String... tags) {
+        return (Counter) family(name, "counter").meters.computeIfAbsent(labels(tags), labels -> new SimpleCounter());
+    }
+
+    @Override
+    public Timer timer(String name, String... tags) {
+        return (Timer) family(name, "timer").meters.computeIfAbsent(labels(tags), labels -> new SimpleTimer());
+    }
+
+    @Override
+    public DistributionSummary summary(String name, String... tags) {
+        return (DistributionSummary) family(name, "summary").meters.computeIfAbsent(labels(tags), labels -> new SimpleTimer());
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value, String... tags) {
+        family(name, "gauge").meters.put(labels(tags), value);
+    }
+
+    private Family family(String name, String type) {
+        final Family family = families.computeIfAbsent(name, n -> new Family(type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException(String.format("%s is already registered as a %s", name, family.type));
+        }
+        return family;
+    }
+
+    @Override
+    public String scrape() {
+        final StringBuilder builder = new StringBuilder();
+
+        new TreeMap<>(families).forEach((name, family) -> {
+            final String metric = name.replace('.', '_');
+            final Map<String, Object> meters = new TreeMap<>(family.meters);
+
+            switch (family.type) {
+                case "counter":
+                    header(builder, metric + "_total", "counter");
+                    meters.forEach((labels, meter) -> sample(builder, metric + "_total", labels, ((Counter) meter).count()));
+                    break;
+                case "gauge":
+                    header(builder, metric, "gauge");
+                    meters.forEach((labels, meter) -> sample(builder, metric, labels, ((LongSupplier) meter).getAsLong()));
+                    break;
+                case "timer":
+                    header(builder, metric + "_seconds", "summary");
+                    meters.forEach((labels, meter) -> {
+                        final Timer timer = (Timer) meter;
+                        sample(builder, metric + "_seconds_count", labels, timer.count());
+                        sample(builder, metric + "_seconds_sum", labels, seconds(timer.totalNanos()));
+                    });
+                    header(builder, metric + "_seconds_max", "gauge");
+                    meters.forEach((labels, meter) -> sample(builder, metric + "_seconds_max", labels, seconds(((Timer) meter).maxNanos())));
+                    break;
+                default:
+                    header(builder, metric, "summary");
+                    meters.forEach((labels, meter) -> {
+                        final DistributionSummary summary = (DistributionSummary) meter;
+                        sample(builder, metric + "_count", labels, summary.count());
+                        sample(builder, metric + "_sum", labels, summary.total());
+                    });
+                    header(builder, metric + "_max", "gauge");
+                    meters.forEach((labels, meter) -> sample(builder, metric + "_max", labels, ((DistributionSummary) meter).max()));
+            }
+        });
+
+        return builder.toString();
+    }
+
+    private static void header(StringBuilder builder, String metric, String type) {
+        builder.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder builder, String metric, String labels, Object value) {
+        builder.append(metric).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /*
+     * Renders the tags as a Prometheus label set, which also serves as the key of the meter.
+     */
+    private static String labels(String... tags) {
+        if (tags.length == 0) {
+            return "";
+        }
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags must be given as key and value pairs");
+        }
+
+        final StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < tags.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(tags[i]).append("=\"");
+            final String value = tags[i + 1] == null ? "" : tags[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                final char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    builder.append('\\').append(c);
+                } else if (c == '\n') {
+                    builder.append("\\n");
+                } else {
+                    builder.append(c);
+                }
+            }
+            builder.append('"');
+        }
+        return builder.append('}').toString();
+    }
+
+    private static class Family {
+
+        private final String type;
+        private final ConcurrentMap<String, Object> meters = new ConcurrentHashMap<>();
+
+        private Family(String type) {
+            this.type = type;
+        }
+    }
+
+    private static class SimpleCounter implements Counter {
+
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        public void increment() {
+            count.increment();
+        }
+
+        @Override
+        public long count() {
+            return count.sum();
+        }
+    }
+
+    /*
+     * Backs both timers, in nanoseconds, and distribution summaries.
+     */
+    private static class SimpleTimer implements Timer, DistributionSummary {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        @Override
+        public void record(long value) {
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        @Override
+        public long count() {
+            return count.sum();
+        }
+
+        @Override
+        public long totalNanos() {
+            return total.sum();
+        }
+
+        @Override
+        public long maxNanos() {
+            return max.get();
+        }
+
+        @Override
+        public long total() {
+            return total.sum();
+        }
+
+        @Override
+        public long max() {
+            return max.get();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package tech.lacambra.fabric.javachaincode.metrics;
+
+/**
+ * Records the duration of events, exposed as a count, a total and a maximum.
+ */
+public interface Timer {
+
+    /**
+     * Records an event.
+     *
+     * @param nanos the duration of the event in nanoseconds
+     */
+    void record(long nanos);
+
+    long count();
+
+    long totalNanos();
+
+    long maxNanos();
+
+}
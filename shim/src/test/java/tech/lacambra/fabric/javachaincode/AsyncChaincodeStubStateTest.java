@@ -0,0 +1,124 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static tech.lacambra.fabric.javachaincode.MockPeerHarness.success;
+
+/**
+ * Reads and writes of the stub against the mock peer, with and without buffered writes.
+ */
+public class AsyncChaincodeStubStateTest {
+
+    private MockPeerHarness harness;
+
+    @After
+    public void close() {
+        if (harness != null) {
+            harness.close();
+        }
+    }
+
+    @Test
+    public void readsEveryKeyOncePerTransaction() throws Exception {
+        harness = new MockPeerHarness((MockPeerHarness.InvokeFunction) stub -> stub.getState("a")
+                .thenCombine(stub.getState("a"), (first, second) -> first)
+                .thenCompose(first -> stub.getState("a"))
+                .thenApply(value -> success(string(value))));
+        harness.peer().getState().put("a", ByteString.copyFromUtf8("1"));
+
+        final Response response = harness.invoke("read");
+
+        assertEquals(Response.Status.SUCCESS, response.getStatus());
+        assertEquals("1", response.getStringPayload());
+        assertEquals(1, harness.peer().getRequestCount(ChaincodeMessage.Type.GET_STATE));
+    }
+
+    @Test
+    public void readsTheValueWrittenByTheTransaction() throws Exception {
+        harness = new MockPeerHarness((MockPeerHarness.InvokeFunction) stub -> stub.getState("a")
+                .thenCompose(old -> stub.putState("a", bytes("2")))
+                .thenCompose(written -> stub.getState("a"))
+                .thenApply(value -> success(string(value))));
+        harness.peer().getState().put("a", ByteString.copyFromUtf8("1"));
+
+        final Response response = harness.invoke("write");
+
+        assertEquals("2", response.getStringPayload());
+        // the write invalidates the cached read
+        assertEquals(2, harness.peer().getRequestCount(ChaincodeMessage.Type.GET_STATE));
+    }
+
+    @Test
+    public void flushesTheLastBufferedWriteOfEveryKey() throws Exception {
+        harness = new MockPeerHarness((MockPeerHarness.InvokeFunction) stub -> stub.putState("a", bytes("1"))
+                .thenCompose(r -> stub.putState("a", bytes("2")))
+                .thenCompose(r -> stub.putState("b", bytes("1")))
+                .thenCompose(r -> stub.delState("b"))
+                .thenCompose(r -> stub.getStates(Arrays.asList("a", "b")))
+                .thenApply(values -> success(string(values.get("a")) + "," + string(values.get("b")))),
+                new ChaincodeOptions().setBufferWrites(true));
+
+        final Response response = harness.invoke("write");
+
+        assertEquals(Response.Status.SUCCESS, response.getStatus());
+        assertEquals("2,", response.getStringPayload());
+        assertEquals(ByteString.copyFromUtf8("2"), harness.peer().getState().get("a"));
+        assertFalse(harness.peer().getState().containsKey("b"));
+        assertEquals(0, harness.peer().getRequestCount(ChaincodeMessage.Type.GET_STATE));
+        assertEquals(1, harness.peer().getRequestCount(ChaincodeMessage.Type.PUT_STATE));
+        assertEquals(1, harness.peer().getRequestCount(ChaincodeMessage.Type.DEL_STATE));
+    }
+
+    @Test
+    public void discardsTheBufferedWritesOfFailedTransactions() throws Exception {
+        harness = new MockPeerHarness((MockPeerHarness.InvokeFunction) stub -> stub.putState("a", bytes("1"))
+                .thenApply(r -> MessageFactory.newErrorChaincodeResponse("failed")),
+                new ChaincodeOptions().setBufferWrites(true));
+
+        final Response response = harness.invoke("write");
+
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+        assertEquals(0, harness.peer().getRequestCount(ChaincodeMessage.Type.PUT_STATE));
+    }
+
+    @Test
+    public void failsTheTransactionWhenAFlushedWriteIsRejected() throws Exception {
+        harness = new MockPeerHarness((MockPeerHarness.InvokeFunction) stub -> stub.putState("good", bytes("1"))
+                .thenCompose(r -> stub.putState("bad", bytes("1")))
+                .thenApply(r -> success("done")),
+                new ChaincodeOptions().setBufferWrites(true));
+        harness.peer().rejectWrites(key -> key.equals("bad"));
+
+        final Response response = harness.invoke("write");
+
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+        assertEquals("Write of bad rejected", response.getMessage());
+    }
+
+    @Test
+    public void answersARejectedWriteWithAnErrorResponse() throws Exception {
+        harness = new MockPeerHarness((MockPeerHarness.InvokeFunction) stub -> stub.putState("bad", bytes("1")));
+        harness.peer().rejectWrites(key -> key.equals("bad"));
+
+        final Response response = harness.invoke("write");
+
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+        assertEquals("Write of bad rejected", response.getMessage());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,90 @@
+package tech.lacambra.fabric.javachaincode;
+
+import io.vertx.core.Vertx;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static tech.lacambra.fabric.javachaincode.MockPeerHarness.success;
+
+/**
+ * Routing of the transactions of a {@link ChaincodeBase} received from the mock peer.
+ */
+public class ChaincodeBaseTest {
+
+    private MockPeerHarness harness;
+
+    @After
+    public void close() {
+        if (harness != null) {
+            harness.close();
+        }
+    }
+
+    @Test
+    public void routesAnnotatedFunctions() throws Exception {
+        harness = new MockPeerHarness(RoutedChaincode::new, new ChaincodeOptions());
+
+        final Response response = harness.invoke("greet", "alice");
+
+        assertEquals(Response.Status.SUCCESS, response.getStatus());
+        assertEquals("hello alice", response.getStringPayload());
+    }
+
+    @Test
+    public void passesOtherFunctionsToInvoke() throws Exception {
+        harness = new MockPeerHarness(FallbackChaincode::new, new ChaincodeOptions());
+
+        assertEquals("hello alice", harness.invoke("greet", "alice").getStringPayload());
+        assertEquals("fallback other", harness.invoke("other").getStringPayload());
+    }
+
+    @Test
+    public void answersUnknownFunctionsByDefault() throws Exception {
+        harness = new MockPeerHarness(RoutedChaincode::new, new ChaincodeOptions());
+
+        final Response response = harness.invoke("other");
+
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+        assertEquals("Unknown function: other", response.getMessage());
+    }
+
+    @Test
+    public void failsInvalidArguments() throws Exception {
+        harness = new MockPeerHarness(RoutedChaincode::new, new ChaincodeOptions());
+
+        final Response response = harness.invoke("greet");
+
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+        assertEquals("Function greet expects 1 arguments, received 0", response.getMessage());
+    }
+
+    public static class RoutedChaincode extends ChaincodeBase {
+
+        public RoutedChaincode(Vertx vertx) {
+            super(vertx);
+        }
+
+        @Override
+        public Response init(AsyncChaincodeStub stub) {
+            return success(null);
+        }
+
+        @ChaincodeFunction
+        public Response greet(AsyncChaincodeStub stub, String name) {
+            return success("hello " + name);
+        }
+    }
+
+    public static class FallbackChaincode extends RoutedChaincode {
+
+        public FallbackChaincode(Vertx vertx) {
+            super(vertx);
+        }
+
+        @Override
+        public Response invoke(AsyncChaincodeStub stub) {
+            return success("fallback " + stub.getFunction());
+        }
+    }
+}
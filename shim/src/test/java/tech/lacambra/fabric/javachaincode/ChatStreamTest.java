@@ -0,0 +1,158 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import io.grpc.stub.StreamObserver;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class ChatStreamTest {
+
+    private static final String CHANNEL_ID = "channel";
+
+    private final RecordingObserver peer = new RecordingObserver();
+
+    @Test
+    public void sendsUpToTheWindowPerTransaction() {
+        final ChatStream chatStream = new ChatStream(peer, 2);
+
+        for (int i = 0; i < 4; i++) {
+            chatStream.sendMessage(getState("tx1", "key" + i));
+        }
+        chatStream.sendMessage(getState("tx2", "other"));
+
+        assertEquals(3, peer.sent.size());
+        assertEquals("tx1", peer.sent.get(0).getTxid());
+        assertEquals("tx1", peer.sent.get(1).getTxid());
+        assertEquals("tx2", peer.sent.get(2).getTxid());
+
+        chatStream.onNext(response("tx1", "value0"));
+        assertEquals(4, peer.sent.size());
+        assertEquals(getState("tx1", "key2"), peer.sent.get(3));
+    }
+
+    @Test
+    public void matchesResponsesInSendOrder() throws Exception {
+        final ChatStream chatStream = new ChatStream(peer, 3);
+
+        final List<CompletableFuture<ByteString>> responses = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            responses.add(chatStream.sendMessage(getState("tx1", "key" + i)));
+        }
+        for (int i = 0; i < 5; i++) {
+            chatStream.onNext(response("tx1", "value" + i));
+        }
+
+        assertEquals(5, peer.sent.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(getState("tx1", "key" + i), peer.sent.get(i));
+            assertEquals("value" + i, responses.get(i).get().toStringUtf8());
+        }
+    }
+
+    @Test
+    public void failsTheRequestAnsweredWithAnError() throws Exception {
+        final ChatStream chatStream = new ChatStream(peer, 1);
+
+        final CompletableFuture<ByteString> failed = chatStream.sendMessage(getState("tx1", "key"));
+        final CompletableFuture<ByteString> next = chatStream.sendMessage(getState("tx1", "next"));
+        chatStream.onNext(message(ChaincodeMessage.Type.ERROR, "tx1", "no such key"));
+        chatStream.onNext(response("tx1", "value"));
+
+        try {
+            failed.get();
+            fail("the request answered with an ERROR must fail");
+        } catch (ExecutionException e) {
+            assertEquals("no such key", e.getCause().getMessage());
+        }
+        assertEquals("value", next.get().toStringUtf8());
+    }
+
+    @Test
+    public void ignoresResponsesOfCompletedTransactions() throws Exception {
+        final ChatStream chatStream = new ChatStream(peer, 1);
+
+        final CompletableFuture<ByteString> first = chatStream.sendMessage(getState("tx1", "key"));
+        chatStream.onNext(response("tx1", "first"));
+        assertEquals("first", first.get().toStringUtf8());
+
+        // the context of tx1 has been retired and is recycled for tx2
+        final CompletableFuture<ByteString> second = chatStream.sendMessage(getState("tx2", "key"));
+        chatStream.onNext(response("tx1", "stale"));
+        assertFalse(second.isDone());
+
+        chatStream.onNext(response("tx2", "second"));
+        assertEquals("second", second.get().toStringUtf8());
+    }
+
+    @Test
+    public void recyclesContextsAcrossManyTransactions() throws Exception {
+        final ChatStream chatStream = new ChatStream(peer, 2);
+
+        // more transactions than pooled contexts, some of them overlapping
+        for (int i = 0; i < 200; i += 2) {
+            final String txA = "tx" + i;
+            final String txB = "tx" + (i + 1);
+            final CompletableFuture<ByteString> a1 = chatStream.sendMessage(getState(txA, "a1"));
+            final CompletableFuture<ByteString> b1 = chatStream.sendMessage(getState(txB, "b1"));
+            final CompletableFuture<ByteString> a2 = chatStream.sendMessage(getState(txA, "a2"));
+
+            chatStream.onNext(response(txB, "b1"));
+            chatStream.onNext(response(txA, "a1"));
+            chatStream.onNext(response(txA, "a2"));
+
+            assertEquals("a1", a1.get().toStringUtf8());
+            assertEquals("a2", a2.get().toStringUtf8());
+            assertEquals("b1", b1.get().toStringUtf8());
+        }
+
+        // a transaction id seen before starts from an empty context
+        final CompletableFuture<ByteString> reused = chatStream.sendMessage(getState("tx0", "again"));
+        assertEquals(getState("tx0", "again"), peer.sent.get(peer.sent.size() - 1));
+        chatStream.onNext(response("tx0", "again"));
+        assertEquals("again", reused.get().toStringUtf8());
+    }
+
+    private static ChaincodeMessage getState(String txId, String key) {
+        return MessageFactory.newGetStateEventMessage(CHANNEL_ID, txId, key);
+    }
+
+    private static ChaincodeMessage response(String txId, String payload) {
+        return message(ChaincodeMessage.Type.RESPONSE, txId, payload);
+    }
+
+    private static ChaincodeMessage message(ChaincodeMessage.Type type, String txId, String payload) {
+        return ChaincodeMessage.newBuilder()
+                .setType(type)
+                .setChannelId(CHANNEL_ID)
+                .setTxid(txId)
+                .setPayload(ByteString.copyFromUtf8(payload))
+                .build();
+    }
+
+    private static class RecordingObserver implements StreamObserver<ChaincodeMessage> {
+
+        private final List<ChaincodeMessage> sent = new ArrayList<>();
+
+        @Override
+        public void onNext(ChaincodeMessage message) {
+            sent.add(message);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FunctionRouterTest {
+
+    private final FunctionRouter router = FunctionRouter.forClass(Functions.class);
+    private final Functions chaincode = new Functions();
+
+    @Test
+    public void routesByFunctionName() {
+        assertTrue(router.routes("transfer"));
+        assertTrue(router.routes("renamed"));
+        assertFalse(router.routes("notAnnotated"));
+        assertFalse(router.routes(null));
+    }
+
+    @Test
+    public void decodesTheParameters() throws Exception {
+        final Response response = route("transfer", "alice", "bob", "10");
+
+        assertEquals(Response.Status.SUCCESS, response.getStatus());
+        assertEquals("alice>bob:10", response.getStringPayload());
+    }
+
+    @Test
+    public void usesTheAnnotationValueAsName() throws Exception {
+        assertEquals("renamed", route("renamed").getStringPayload());
+    }
+
+    @Test
+    public void routesAsyncFunctions() throws Exception {
+        assertEquals("2.5", route("half", "5").getStringPayload());
+    }
+
+    @Test
+    public void decodesByteArrays() throws Exception {
+        assertEquals("abcd", route("concat", "ab", "cd").getStringPayload());
+    }
+
+    @Test
+    public void decodesBooleansStrictly() throws Exception {
+        assertEquals("true,false", route("flags", "true", "false").getStringPayload());
+
+        final Response response = route("flags", "true", "yes");
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+        assertEquals("Invalid arguments for function flags: \"yes\" is not a boolean", response.getMessage());
+
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, route("flags", "True", "false").getStatus());
+    }
+
+    @Test
+    public void fetchesTheArgumentBuffersOncePerInvocation() throws Exception {
+        final int[] fetches = new int[1];
+        final AsyncChaincodeStub stub = new AsyncChaincodeStubImpl("channel", "tx", null, encode("concat", "ab", "cd"), null) {
+            @Override
+            public List<ByteBuffer> getArgBuffers() {
+                fetches[0]++;
+                return super.getArgBuffers();
+            }
+        };
+
+        final Response response = router.route(chaincode, stub).toCompletableFuture().get();
+
+        assertEquals("abcd", response.getStringPayload());
+        assertEquals(1, fetches[0]);
+    }
+
+    @Test
+    public void rejectsInvalidNumbers() throws Exception {
+        final Response response = route("transfer", "alice", "bob", "ten");
+
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+        assertTrue(response.getMessage().startsWith("Invalid arguments for function transfer"));
+    }
+
+    @Test
+    public void rejectsWrongArgumentCounts() throws Exception {
+        final Response response = route("transfer", "alice");
+
+        assertEquals("Function transfer expects 3 arguments, received 1", response.getMessage());
+    }
+
+    @Test
+    public void answersUnknownFunctions() throws Exception {
+        assertEquals("Unknown function: notAnnotated", route("notAnnotated").getMessage());
+    }
+
+    private Response route(String... args) throws Exception {
+        final AsyncChaincodeStub stub = new AsyncChaincodeStubImpl("channel", "tx", null, encode(args), null);
+        return router.route(chaincode, stub).toCompletableFuture().get();
+    }
+
+    private static List<ByteString> encode(String... args) {
+        final List<ByteString> encoded = new ArrayList<>(args.length);
+        for (String arg : args) {
+            encoded.add(ByteString.copyFromUtf8(arg));
+        }
+        return encoded;
+    }
+
+    private static Response success(String payload) {
+        return new Response(Response.Status.SUCCESS, null, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static class Functions {
+
+        @ChaincodeFunction
+        public Response transfer(AsyncChaincodeStub stub, String from, String to, long amount) {
+            return success(from + ">" + to + ":" + amount);
+        }
+
+        @ChaincodeFunction("renamed")
+        public Response original(AsyncChaincodeStub stub) {
+            return success("renamed");
+        }
+
+        @ChaincodeFunction
+        public CompletionStage<Response> half(AsyncChaincodeStub stub, int value) {
+            return CompletableFuture.completedFuture(success(String.valueOf(value / 2.0)));
+        }
+
+        @ChaincodeFunction
+        public Response flags(AsyncChaincodeStub stub, boolean first, Boolean second) {
+            return success(first + "," + second);
+        }
+
+        @ChaincodeFunction
+        public Response concat(AsyncChaincodeStub stub, byte[] first, byte[] second) {
+            return success(new String(first, StandardCharsets.UTF_8) + new String(second, StandardCharsets.UTF_8));
+        }
+
+        public Response notAnnotated(AsyncChaincodeStub stub) {
+            return success("notAnnotated");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.ManagedChannel;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import org.hyperledger.fabric.protos.peer.Chaincode.ChaincodeID;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+import org.hyperledger.fabric.protos.peer.ProposalResponsePackage;
+import tech.lacambra.fabric.javachaincode.mock.MockPeer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Runs a chaincode against a {@link MockPeer} over the gRPC in-process transport, wired as
+ * {@link ChaincodeBase#chatWithPeer} does it.
+ */
+class MockPeerHarness implements AutoCloseable {
+
+    static final String CHANNEL_ID = "test-channel";
+    static final long TIMEOUT_SECONDS = 10;
+
+    private final Vertx vertx;
+    private final MockPeer peer;
+    private final ManagedChannel channel;
+    private final WorkerExecutor workerExecutor;
+    private final AtomicLong txIds;
+
+    MockPeerHarness(Chaincode chaincode) throws Exception {
+        this(vertx -> chaincode, new ChaincodeOptions());
+    }
+
+    MockPeerHarness(Chaincode chaincode, ChaincodeOptions options) throws Exception {
+        this(vertx -> chaincode, options);
+    }
+
+    MockPeerHarness(Function<Vertx, Chaincode> chaincodeFactory, ChaincodeOptions options) throws Exception {
+        this.vertx = Vertx.vertx();
+        this.peer = new MockPeer(vertx);
+        this.channel = peer.newInProcessChannel();
+        this.workerExecutor = vertx.createSharedWorkerExecutor("test-transactions", options.getMaxConcurrentTransactions());
+        this.txIds = new AtomicLong();
+
+        final Chaincode chaincode = chaincodeFactory.apply(vertx);
+        final ChatStream chatStream = new ChatStream(channel, options.getPipelineWindow(), options.getMetricsRegistry(),
+                new MessageTracer(options.getTraceBufferSize(), options.getTracePayloadSampling()),
+                stream -> new TransactionDispatcher(chaincode, stream, options, workerExecutor));
+        chatStream.sendMessage(ChaincodeMessage.newBuilder()
+                .setType(ChaincodeMessage.Type.REGISTER)
+                .setPayload(ChaincodeID.newBuilder().setName("test").build().toByteString())
+                .build());
+        peer.registration().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    MockPeer peer() {
+        return peer;
+    }
+
+    /**
+     * Invokes the chaincode with the given string arguments, the function name first.
+     *
+     * @return the chaincode response, an {@link Response.Status#INTERNAL_SERVER_ERROR} carrying
+     * the error message if the transaction ended with an ERROR
+     */
+    Response invoke(String... args) throws Exception {
+        return invokeAsync(args).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    CompletableFuture<Response> invokeAsync(String... args) {
+        final List<ByteString> encoded = new ArrayList<>(args.length);
+        for (String arg : args) {
+            encoded.add(ByteString.copyFromUtf8(arg));
+        }
+        return peer.invoke(CHANNEL_ID, "tx" + txIds.incrementAndGet(), encoded).thenApply(MockPeerHarness::toResponse);
+    }
+
+    private static Response toResponse(ChaincodeMessage completion) {
+        if (completion.getType() != ChaincodeMessage.Type.COMPLETED) {
+            return new Response(Response.Status.INTERNAL_SERVER_ERROR, completion.getPayload().toStringUtf8(), null);
+        }
+        try {
+            return MessageFactory.toChaincodeResponse(ProposalResponsePackage.Response.parseFrom(completion.getPayload()));
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static Response success(String payload) {
+        return new Response(Response.Status.SUCCESS, null, payload == null ? null : payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        channel.shutdownNow();
+        peer.close();
+        vertx.close();
+    }
+
+    /**
+     * A chaincode reduced to its invoke function, INIT transactions simply succeed.
+     */
+    @FunctionalInterface
+    interface InvokeFunction extends AsyncChaincode {
+
+        @Override
+        default CompletionStage<Response> initAsync(AsyncChaincodeStub stub) {
+            return CompletableFuture.completedFuture(success(null));
+        }
+    }
+}
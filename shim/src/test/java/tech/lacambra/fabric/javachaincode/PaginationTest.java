@@ -0,0 +1,120 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import tech.lacambra.fabric.javachaincode.ledger.KeyValue;
+import tech.lacambra.fabric.javachaincode.ledger.QueryResultsPage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static tech.lacambra.fabric.javachaincode.MockPeerHarness.success;
+
+/**
+ * Pages cut by the shim over range and rich queries, following their bookmarks until the
+ * last page. The mock peer answers one result per page, so every shim page spans several
+ * peer pages.
+ */
+public class PaginationTest {
+
+    private static final String ALL = "{\"selector\":{}}";
+
+    private MockPeerHarness harness;
+
+    @Before
+    public void start() throws Exception {
+        harness = new MockPeerHarness((MockPeerHarness.InvokeFunction) stub -> {
+            final List<String> parameters = stub.getParameters();
+            final int pageSize = Integer.parseInt(parameters.get(1));
+            final String bookmark = parameters.get(2);
+            final CompletableFuture<QueryResultsPage<KeyValue>> page = stub.getFunction().equals("range")
+                    ? stub.getStateByRangeWithPagination(parameters.get(0), "", pageSize, bookmark)
+                    : stub.getQueryResultWithPagination(parameters.get(0), pageSize, bookmark);
+            return page.handle((results, error) -> error != null
+                    ? MessageFactory.newErrorChaincodeResponse(error.getClass().getSimpleName() + ": " + error.getMessage())
+                    : success(describe(results)));
+        });
+        harness.peer().setQueryPageSize(1);
+        for (int i = 1; i <= 5; i++) {
+            harness.peer().getState().put("k" + i, ByteString.copyFromUtf8("v" + i));
+        }
+    }
+
+    @After
+    public void close() {
+        harness.close();
+    }
+
+    @Test
+    public void pagesARange() throws Exception {
+        assertEquals("k1,k2|k2\u0000", page("range", "", 2, ""));
+        assertEquals("k3,k4|k4\u0000", page("range", "", 2, "k2\u0000"));
+        assertEquals("k5|", page("range", "", 2, "k4\u0000"));
+    }
+
+    @Test
+    public void closesTheQueryOfACutPage() throws Exception {
+        page("range", "", 2, "");
+        assertEquals(1, harness.peer().getRequestCount(ChaincodeMessage.Type.QUERY_STATE_CLOSE));
+
+        page("range", "", 2, "k4\u0000");
+        assertEquals(1, harness.peer().getRequestCount(ChaincodeMessage.Type.QUERY_STATE_CLOSE));
+    }
+
+    @Test
+    public void pagesARangeOfExactlyOnePage() throws Exception {
+        // the peer page holding k5 is full and announces more results, the next one is empty
+        assertEquals("k4,k5|", page("range", "k4", 2, ""));
+    }
+
+    @Test
+    public void pagesARichQuery() throws Exception {
+        assertEquals("k1,k2|2", page("query", ALL, 2, ""));
+        assertEquals("k3,k4|4", page("query", ALL, 2, "2"));
+        assertEquals("k5|", page("query", ALL, 2, "4"));
+    }
+
+    @Test
+    public void addsTheBookmarkToTheSkipOfTheQuery() throws Exception {
+        final String skipOne = "{\"selector\":{},\"skip\":1}";
+
+        assertEquals("k2,k3|2", page("query", skipOne, 2, ""));
+        assertEquals("k4,k5|", page("query", skipOne, 2, "2"));
+    }
+
+    @Test
+    public void failsThePageOfAnInvalidQuery() throws Exception {
+        assertEquals("IllegalArgumentException: The skip of the query must be an integer: one",
+                error("query", "{\"selector\":{},\"skip\":\"one\"}", 2, ""));
+        assertEquals("IllegalArgumentException: Invalid skip: -1",
+                error("query", "{\"selector\":{},\"skip\":-1}", 2, ""));
+        assertEquals("IllegalArgumentException: Invalid bookmark: k2",
+                error("query", ALL, 2, "k2"));
+        assertEquals("IllegalArgumentException: Invalid bookmark: -2",
+                error("query", ALL, 2, "-2"));
+        assertEquals("IllegalArgumentException: The query must be a JSON object",
+                error("query", "[]", 2, ""));
+        assertEquals(0, harness.peer().getRequestCount(ChaincodeMessage.Type.GET_QUERY_RESULT));
+    }
+
+    private String page(String function, String query, int pageSize, String bookmark) throws Exception {
+        final Response response = harness.invoke(function, query, String.valueOf(pageSize), bookmark);
+        assertEquals(response.getMessage(), Response.Status.SUCCESS, response.getStatus());
+        return response.getStringPayload();
+    }
+
+    private String error(String function, String query, int pageSize, String bookmark) throws Exception {
+        final Response response = harness.invoke(function, query, String.valueOf(pageSize), bookmark);
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+        return response.getMessage();
+    }
+
+    private static String describe(QueryResultsPage<KeyValue> page) {
+        return page.getResults().stream().map(KeyValue::getKey).collect(Collectors.joining(",")) + "|" + page.getBookmark();
+    }
+}
@@ -0,0 +1,221 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResponse;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResultBytes;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The publisher against a scripted peer: pages are answered synchronously, so every signal
+ * is delivered before request or cancel returns.
+ */
+public class QueryResultsPublisherTest {
+
+    private final ScriptedPeer peer = new ScriptedPeer(
+            page("a", "b"),
+            page("c", "d"),
+            page("e"));
+
+    @Test
+    public void fetchesPagesOnDemand() {
+        final RecordingSubscriber subscriber = subscribe(result -> result);
+
+        assertEquals(0, peer.pagesServed);
+        subscriber.subscription.request(1);
+        assertEquals(Arrays.asList("a"), subscriber.received);
+        assertEquals(1, peer.pagesServed);
+
+        subscriber.subscription.request(2);
+        assertEquals(Arrays.asList("a", "b", "c"), subscriber.received);
+        assertEquals(2, peer.pagesServed);
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), subscriber.received);
+        assertEquals(3, peer.pagesServed);
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+        assertEquals(0, peer.closes);
+    }
+
+    @Test
+    public void closesTheQueryWhenCancelled() {
+        final RecordingSubscriber subscriber = subscribe(result -> result);
+
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(10);
+
+        assertEquals(Arrays.asList("a"), subscriber.received);
+        assertEquals(1, peer.pagesServed);
+        assertEquals(1, peer.closes);
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void rejectsNonPositiveDemand() {
+        final RecordingSubscriber subscriber = subscribe(result -> result);
+
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(0, peer.pagesServed);
+    }
+
+    @Test
+    public void reportsMapperFailures() {
+        final RecordingSubscriber subscriber = subscribe(result -> {
+            if (result.equals("b")) {
+                throw new IllegalStateException("cannot decode b");
+            }
+            return result;
+        });
+
+        subscriber.subscription.request(5);
+
+        assertEquals(Arrays.asList("a"), subscriber.received);
+        assertEquals("cannot decode b", subscriber.error.getMessage());
+        assertFalse(subscriber.completed);
+        // the peer still holds the rest of the query
+        assertEquals(1, peer.closes);
+    }
+
+    @Test
+    public void cancelsSilentlyWhenTheSubscriberThrows() {
+        final RecordingSubscriber subscriber = subscribe(result -> result);
+        subscriber.failOn = "b";
+
+        subscriber.subscription.request(5);
+        subscriber.subscription.request(5);
+
+        assertEquals(Arrays.asList("a", "b"), subscriber.received);
+        assertNull(subscriber.error);
+        assertFalse(subscriber.completed);
+        assertEquals(1, peer.closes);
+    }
+
+    @Test
+    public void reportsQueryFailures() {
+        peer.failNext = new IllegalStateException("query failed");
+        final RecordingSubscriber subscriber = subscribe(result -> result);
+
+        subscriber.subscription.request(1);
+
+        assertEquals("query failed", subscriber.error.getMessage());
+        assertTrue(subscriber.received.isEmpty());
+    }
+
+    @Test
+    public void acceptsASingleSubscriber() {
+        final QueryResultsPublisher<String> publisher = publisher(result -> result);
+        publisher.subscribe(new RecordingSubscriber());
+
+        final RecordingSubscriber second = new RecordingSubscriber();
+        publisher.subscribe(second);
+
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    private RecordingSubscriber subscribe(Function<String, String> mapper) {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(mapper).subscribe(subscriber);
+        return subscriber;
+    }
+
+    private QueryResultsPublisher<String> publisher(Function<String, String> mapper) {
+        return new QueryResultsPublisher<>(peer, "channel", "tx", () -> peer.serve(),
+                result -> mapper.apply(result.getResultBytes().toStringUtf8()));
+    }
+
+    private static QueryResponse.Builder page(String... results) {
+        final QueryResponse.Builder page = QueryResponse.newBuilder().setId("query");
+        for (String result : results) {
+            page.addResults(QueryResultBytes.newBuilder().setResultBytes(ByteString.copyFromUtf8(result)));
+        }
+        return page;
+    }
+
+    /*
+     * Serves the given pages in order, the last one closing the query.
+     */
+    private static class ScriptedPeer extends PeerMessageHandler {
+
+        private final List<QueryResponse.Builder> pages;
+        private int pagesServed;
+        private int closes;
+        private RuntimeException failNext;
+
+        private ScriptedPeer(QueryResponse.Builder... pages) {
+            super(null);
+            this.pages = Arrays.asList(pages);
+        }
+
+        private CompletableFuture<QueryResponse> serve() {
+            final CompletableFuture<QueryResponse> response = new CompletableFuture<>();
+            if (failNext != null) {
+                response.completeExceptionally(failNext);
+                return response;
+            }
+            final QueryResponse.Builder page = pages.get(pagesServed++);
+            response.complete(page.setHasMore(pagesServed < pages.size()).build());
+            return response;
+        }
+
+        @Override
+        CompletableFuture<QueryResponse> queryStateNext(String channelId, String txId, String queryId) {
+            return serve();
+        }
+
+        @Override
+        CompletableFuture<QueryResponse> queryStateClose(String channelId, String txId, String queryId) {
+            closes++;
+            return CompletableFuture.completedFuture(QueryResponse.newBuilder().setId(queryId).build());
+        }
+    }
+
+    private static class RecordingSubscriber implements Subscriber<String> {
+
+        private final List<String> received = new ArrayList<>();
+        private Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+        private String failOn;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(String result) {
+            received.add(result);
+            if (result.equals(failOn)) {
+                throw new IllegalStateException("subscriber failed on " + result);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
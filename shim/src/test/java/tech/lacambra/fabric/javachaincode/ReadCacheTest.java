@@ -0,0 +1,139 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReadCacheTest {
+
+    private final ReadCache cache = new ReadCache();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void loadsEveryKeyOnce() throws Exception {
+        final CompletableFuture<ByteString> pending = new CompletableFuture<>();
+
+        final CompletableFuture<ByteString> first = cache.get("key", key -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        final CompletableFuture<ByteString> inFlight = cache.get("key", this::unexpectedLoad);
+        pending.complete(ByteString.copyFromUtf8("value"));
+        final CompletableFuture<ByteString> cached = cache.get("key", this::unexpectedLoad);
+
+        assertEquals(1, loads.get());
+        assertSame(first, inFlight);
+        assertSame(first, cached);
+        assertEquals("value", cached.get().toStringUtf8());
+    }
+
+    @Test
+    public void reloadsAfterAFailedRead() throws Exception {
+        final CompletableFuture<ByteString> failed = cache.get("key", key -> failedFuture(new IllegalStateException("unavailable")));
+        assertFailedWith(failed, "unavailable");
+
+        final CompletableFuture<ByteString> retried = cache.get("key", key -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(ByteString.copyFromUtf8("value"));
+        });
+        assertEquals(1, loads.get());
+        assertEquals("value", retried.get().toStringUtf8());
+    }
+
+    @Test
+    public void reloadsAfterALoaderThrowing() throws Exception {
+        final CompletableFuture<ByteString> failed = cache.get("key", key -> {
+            throw new IllegalStateException("thrown");
+        });
+        assertFailedWith(failed, "thrown");
+
+        final CompletableFuture<ByteString> retried = cache.get("key", key -> CompletableFuture.completedFuture(ByteString.copyFromUtf8("value")));
+        assertEquals("value", retried.get().toStringUtf8());
+    }
+
+    @Test
+    public void reloadsAfterAnInvalidation() throws Exception {
+        cache.get("key", key -> CompletableFuture.completedFuture(ByteString.copyFromUtf8("old"))).get();
+        cache.invalidate("key");
+
+        final CompletableFuture<ByteString> reloaded = cache.get("key", key -> CompletableFuture.completedFuture(ByteString.copyFromUtf8("new")));
+        assertEquals("new", reloaded.get().toStringUtf8());
+    }
+
+    @Test
+    public void loadsTheMissingKeysInOneCall() throws Exception {
+        cache.get("cached", key -> CompletableFuture.completedFuture(ByteString.copyFromUtf8("cached")));
+        final List<Collection<String>> batches = new ArrayList<>();
+
+        final Map<String, CompletableFuture<ByteString>> reads = cache.getAll(Arrays.asList("a", "cached", "b", "a"), keys -> {
+            batches.add(new ArrayList<>(keys));
+            final Map<String, ByteString> values = new HashMap<>();
+            keys.forEach(key -> values.put(key, ByteString.copyFromUtf8(key.toUpperCase())));
+            return CompletableFuture.completedFuture(values);
+        });
+
+        assertEquals(1, batches.size());
+        assertEquals(Arrays.asList("a", "b"), batches.get(0));
+        assertEquals(Arrays.asList("a", "cached", "b"), new ArrayList<>(reads.keySet()));
+        assertEquals("A", reads.get("a").get().toStringUtf8());
+        assertEquals("cached", reads.get("cached").get().toStringUtf8());
+        assertEquals("B", reads.get("b").get().toStringUtf8());
+    }
+
+    @Test
+    public void readsKeysMissingFromTheLoadedValuesAsEmpty() throws Exception {
+        final Map<String, CompletableFuture<ByteString>> reads = cache.getAll(Arrays.asList("a", "b"), keys ->
+                CompletableFuture.completedFuture(Collections.singletonMap("a", ByteString.copyFromUtf8("A"))));
+
+        assertEquals("A", reads.get("a").get().toStringUtf8());
+        assertSame(ByteString.EMPTY, reads.get("b").get());
+    }
+
+    @Test
+    public void releasesTheKeysOfABulkLoaderThrowing() throws Exception {
+        final Map<String, CompletableFuture<ByteString>> reads = cache.getAll(Arrays.asList("a", "b"), keys -> {
+            throw new IllegalStateException("thrown");
+        });
+        assertFailedWith(reads.get("a"), "thrown");
+        assertFailedWith(reads.get("b"), "thrown");
+
+        final CompletableFuture<ByteString> retried = cache.get("a", key -> CompletableFuture.completedFuture(ByteString.copyFromUtf8("value")));
+        assertEquals("value", retried.get().toStringUtf8());
+    }
+
+    private CompletableFuture<ByteString> unexpectedLoad(String key) {
+        fail("unexpected load of " + key);
+        return null;
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable error) {
+        final CompletableFuture<T> failed = new CompletableFuture<>();
+        failed.completeExceptionally(error);
+        return failed;
+    }
+
+    private static void assertFailedWith(CompletableFuture<?> future, String message) throws InterruptedException {
+        assertTrue(future.isDone());
+        try {
+            future.get();
+            fail("the read must fail");
+        } catch (ExecutionException e) {
+            assertEquals(message, e.getCause().getMessage());
+        }
+    }
+}
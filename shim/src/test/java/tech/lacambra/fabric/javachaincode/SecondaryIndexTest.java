@@ -0,0 +1,172 @@
+package tech.lacambra.fabric.javachaincode;
+
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+import org.junit.After;
+import org.junit.Test;
+import tech.lacambra.fabric.javachaincode.ledger.CompositeKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static tech.lacambra.fabric.javachaincode.MockPeerHarness.success;
+
+/**
+ * Maintenance of a secondary index by the stub, checked on the state of the mock peer.
+ */
+public class SecondaryIndexTest {
+
+    private static final String OWNER_INDEX = "owner~car";
+
+    private MockPeerHarness harness;
+
+    @After
+    public void close() {
+        if (harness != null) {
+            harness.close();
+        }
+    }
+
+    @Test
+    public void indexesWrittenKeys() throws Exception {
+        start(new ChaincodeOptions());
+
+        assertSuccess(harness.invoke("put", "CAR1", "alice"));
+
+        assertEquals("alice", harness.peer().getState().get("CAR1").toStringUtf8());
+        // the entry itself is a composite key, hence not indexed
+        assertEquals(Collections.singletonList(entry("alice", "CAR1")), compositeKeys());
+    }
+
+    @Test
+    public void movesTheEntryOfAnUpdatedKey() throws Exception {
+        start(new ChaincodeOptions());
+
+        assertSuccess(harness.invoke("put", "CAR1", "alice"));
+        assertSuccess(harness.invoke("put", "CAR1", "bob"));
+
+        assertEquals(Collections.singletonList(entry("bob", "CAR1")), compositeKeys());
+    }
+
+    @Test
+    public void leavesUnchangedEntriesAlone() throws Exception {
+        start(new ChaincodeOptions());
+        assertSuccess(harness.invoke("put", "CAR1", "alice"));
+        final long puts = harness.peer().getRequestCount(ChaincodeMessage.Type.PUT_STATE);
+
+        assertSuccess(harness.invoke("put", "CAR1", "alice"));
+
+        assertEquals(puts + 1, harness.peer().getRequestCount(ChaincodeMessage.Type.PUT_STATE));
+        assertEquals(0, harness.peer().getRequestCount(ChaincodeMessage.Type.DEL_STATE));
+    }
+
+    @Test
+    public void removesTheEntryOfADeletedKey() throws Exception {
+        start(new ChaincodeOptions());
+
+        assertSuccess(harness.invoke("put", "CAR1", "alice"));
+        assertSuccess(harness.invoke("del", "CAR1"));
+
+        assertEquals(Collections.emptyList(), compositeKeys());
+    }
+
+    @Test
+    public void diffsAgainstTheLastWriteOfTheTransaction() throws Exception {
+        start(new ChaincodeOptions());
+        assertSuccess(harness.invoke("put", "CAR1", "alice"));
+
+        assertSuccess(harness.invoke("put", "CAR1", "bob", "carol"));
+
+        assertEquals("carol", harness.peer().getState().get("CAR1").toStringUtf8());
+        assertEquals(Collections.singletonList(entry("carol", "CAR1")), compositeKeys());
+    }
+
+    @Test
+    public void diffsAgainstTheLastBufferedWriteOfTheTransaction() throws Exception {
+        start(new ChaincodeOptions().setBufferWrites(true));
+        assertSuccess(harness.invoke("put", "CAR1", "alice"));
+
+        assertSuccess(harness.invoke("put", "CAR1", "bob", "carol"));
+
+        assertEquals(Collections.singletonList(entry("carol", "CAR1")), compositeKeys());
+    }
+
+    @Test
+    public void onlyIndexesTheFilteredKeys() throws Exception {
+        start(new ChaincodeOptions().addSecondaryIndex(new SecondaryIndex("owner~bike")
+                .forKeys(key -> key.startsWith("BIKE"))
+                .attribute(value -> new String(value, StandardCharsets.UTF_8))));
+
+        assertSuccess(harness.invoke("put", "BIKE1", "alice"));
+        assertSuccess(harness.invoke("put", "CAR1", "bob"));
+
+        // the owner~car index covers every simple key
+        assertEquals(Arrays.asList(
+                new CompositeKey("owner~bike", "alice", "BIKE1").toString(),
+                entry("alice", "BIKE1"),
+                entry("bob", "CAR1")),
+                compositeKeys());
+    }
+
+    @Test
+    public void looksEntriesUp() throws Exception {
+        start(new ChaincodeOptions());
+        assertSuccess(harness.invoke("put", "CAR1", "alice"));
+        assertSuccess(harness.invoke("put", "CAR2", "bob"));
+        assertSuccess(harness.invoke("put", "CAR3", "alice"));
+
+        assertEquals("CAR1,CAR3", harness.invoke("lookup", "alice").getStringPayload());
+    }
+
+    private void start(ChaincodeOptions options) throws Exception {
+        final SecondaryIndex ownerIndex = new SecondaryIndex(OWNER_INDEX)
+                .attribute(value -> new String(value, StandardCharsets.UTF_8));
+        options.addSecondaryIndex(ownerIndex);
+
+        harness = new MockPeerHarness((MockPeerHarness.InvokeFunction) stub -> {
+            final List<String> parameters = stub.getParameters();
+            switch (stub.getFunction()) {
+                case "put":
+                    // all the values are written at once, the index must see them in call order
+                    final List<CompletableFuture<Response>> writes = new ArrayList<>();
+                    for (String value : parameters.subList(1, parameters.size())) {
+                        writes.add(stub.putState(parameters.get(0), value.getBytes(StandardCharsets.UTF_8)));
+                    }
+                    return PeerMessageHandler.firstFailure(writes);
+                case "del":
+                    return stub.delState(parameters.get(0));
+                case "lookup":
+                    return lookup(stub, ownerIndex, parameters.get(0));
+                default:
+                    return CompletableFuture.completedFuture(MessageFactory.newErrorChaincodeResponse("Unknown function"));
+            }
+        }, options);
+    }
+
+    private static CompletionStage<Response> lookup(AsyncChaincodeStub stub, SecondaryIndex index, String owner) {
+        final List<String> keys = Collections.synchronizedList(new ArrayList<>());
+        return index.lookup(stub, owner)
+                .thenCompose(entries -> entries.forEachAsync(entry -> keys.add(SecondaryIndex.getIndexedKey(entry))))
+                .thenApply(done -> success(String.join(",", keys)));
+    }
+
+    private List<String> compositeKeys() {
+        return harness.peer().getState().keySet().stream()
+                .filter(key -> key.startsWith("\u0000"))
+                .collect(Collectors.toList());
+    }
+
+    private static String entry(String owner, String key) {
+        return new CompositeKey(OWNER_INDEX, owner, key).toString();
+    }
+
+    private static void assertSuccess(Response response) {
+        assertEquals(response.getMessage(), Response.Status.SUCCESS, response.getStatus());
+    }
+}
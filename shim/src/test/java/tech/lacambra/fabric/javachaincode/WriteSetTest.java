@@ -0,0 +1,40 @@
+package tech.lacambra.fabric.javachaincode;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class WriteSetTest {
+
+    private final WriteSet writeSet = new WriteSet();
+
+    @Test
+    public void keepsTheWritesReceivedDuringAFlush() throws Exception {
+        final List<String> sent = new ArrayList<>();
+        final PeerMessageHandler handler = new PeerMessageHandler(null) {
+            @Override
+            CompletableFuture<Response> putState(String channelId, String txId, String collection, String key, ByteString value) {
+                sent.add(key + "=" + value.toStringUtf8());
+                if (value.toStringUtf8().equals("1")) {
+                    writeSet.put(key, ByteString.copyFromUtf8("2"));
+                }
+                return CompletableFuture.completedFuture(new Response(Response.Status.SUCCESS, null, null));
+            }
+        };
+        writeSet.put("a", ByteString.copyFromUtf8("1"));
+
+        writeSet.flush(handler, "channel", "tx").get();
+        // the newer write is sent by this flush or kept for the next one, never dropped
+        writeSet.flush(handler, "channel", "tx").get();
+
+        assertEquals(2, sent.size());
+        assertEquals("a=2", sent.get(1));
+        assertFalse(writeSet.contains("a"));
+    }
+}
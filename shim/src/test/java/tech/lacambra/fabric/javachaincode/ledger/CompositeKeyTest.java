@@ -0,0 +1,106 @@
+package tech.lacambra.fabric.javachaincode.ledger;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class CompositeKeyTest {
+
+    private static final String MAX_CODE_POINT = new String(Character.toChars(Character.MAX_CODE_POINT));
+    private static final String BELOW_MAX_CODE_POINT = new String(Character.toChars(Character.MAX_CODE_POINT - 1));
+
+    @Test
+    public void formatsTheSegmentsBetweenDelimiters() {
+        final CompositeKey key = new CompositeKey("car", "alice", "CAR1");
+
+        assertEquals("\u0000car\u0000alice\u0000CAR1\u0000", key.toString());
+    }
+
+    @Test
+    public void roundTrips() {
+        assertRoundTrip("car", "alice", "CAR1");
+        assertRoundTrip("car");
+        assertRoundTrip("", "", "");
+        assertRoundTrip("car", "", "CAR1");
+        assertRoundTrip("\u00e9t\u00e9", "\u4e2d\u6587", "\ud83d\ude97");
+    }
+
+    @Test
+    public void keepsTrailingEmptyAttributes() {
+        final String compositeKey = "\u0000car\u0000alice\u0000\u0000";
+
+        final CompositeKey parsed = CompositeKey.parseCompositeKey(compositeKey);
+
+        assertEquals("car", parsed.getObjectType());
+        assertEquals(Arrays.asList("alice", ""), parsed.getAttributes());
+        assertEquals(compositeKey, parsed.toString());
+    }
+
+    @Test
+    public void roundTripsCodePointsNextToTheReservedOnes() {
+        assertRoundTrip("\u0001", "\u0001\u0002");
+        assertRoundTrip(BELOW_MAX_CODE_POINT, "a" + BELOW_MAX_CODE_POINT);
+        // the halves of U+10FFFF are only reserved together
+        assertRoundTrip("car", MAX_CODE_POINT.substring(0, 1), MAX_CODE_POINT.substring(1));
+    }
+
+    @Test
+    public void rejectsTheDelimiterInSegments() {
+        assertRejected("car\u0000", "alice");
+        assertRejected("car", "ali\u0000ce");
+        assertRejected("car", "alice", "\u0000");
+    }
+
+    @Test
+    public void rejectsTheMaxCodePointInSegments() {
+        assertRejected(MAX_CODE_POINT);
+        assertRejected("car", "alice" + MAX_CODE_POINT);
+        assertRejected("car", MAX_CODE_POINT + "alice");
+    }
+
+    @Test
+    public void rejectsKeysOutsideTheNamespace() {
+        try {
+            CompositeKey.parseCompositeKey("car\u0000alice\u0000");
+            fail("a key without the namespace prefix is not a composite key");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            CompositeKey.parseCompositeKey("\u0000");
+            fail("a composite key has an object type");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertNull(CompositeKey.parseCompositeKey(null));
+    }
+
+    @Test
+    public void validatesSimpleKeys() {
+        CompositeKey.validateSimpleKeys("", "car", "\u0001car");
+        try {
+            CompositeKey.validateSimpleKeys("car", "\u0000car");
+            fail("a simple key cannot start with the composite key namespace");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void assertRoundTrip(String objectType, String... attributes) {
+        final CompositeKey key = new CompositeKey(objectType, attributes);
+        final CompositeKey parsed = CompositeKey.parseCompositeKey(key.toString());
+
+        assertEquals(objectType, parsed.getObjectType());
+        assertEquals(Arrays.asList(attributes), parsed.getAttributes());
+        assertEquals(key.toString(), parsed.toString());
+    }
+
+    private static void assertRejected(String objectType, String... attributes) {
+        try {
+            new CompositeKey(objectType, attributes);
+            fail("invalid segments must be rejected: " + objectType + " " + Arrays.toString(attributes));
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
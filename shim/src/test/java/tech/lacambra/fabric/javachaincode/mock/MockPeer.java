@@ -0,0 +1,401 @@
+package tech.lacambra.fabric.javachaincode.mock;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.grpc.VertxServer;
+import io.vertx.grpc.VertxServerBuilder;
+import org.hyperledger.fabric.protos.ledger.queryresult.KvQueryResult;
+import org.hyperledger.fabric.protos.peer.Chaincode.ChaincodeInput;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.ChaincodeMessage;
+import org.hyperledger.fabric.protos.peer.ChaincodeSupportGrpc;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * In-process stand-in for the chaincode support service of a Fabric peer, to run chaincodes
+ * without a network. The world state is an in-memory sorted map per collection; writes are
+ * applied as soon as they are received, without endorsement nor validation.
+ * <p>
+ * The peer answers REGISTER with REGISTERED and READY, serves GET_STATE, PUT_STATE,
+ * DEL_STATE, GET_STATE_BY_RANGE, GET_QUERY_RESULT, QUERY_STATE_NEXT and QUERY_STATE_CLOSE,
+ * and answers any other request with an ERROR. Rich queries are not evaluated: every key of
+ * the public state matches, in key order, and only their skip and limit are honored.
+ * Transactions are sent to the registered chaincode with {@link #init(String, String, List)}
+ * and {@link #invoke(String, String, List)}.
+ * <p>
+ * Every answer can be delayed by a fixed latency to emulate a remote peer. The requests are
+ * counted by type, and writes can be rejected to exercise the error paths of the shim.
+ */
+public class MockPeer extends ChaincodeSupportGrpc.ChaincodeSupportImplBase {
+
+    private static final Logger logger = Logger.getLogger(MockPeer.class.getName());
+
+    /**
+     * Default number of results of a range query page, as configured on Fabric peers.
+     */
+    public static final int DEFAULT_QUERY_PAGE_SIZE = 100;
+
+    private final Vertx vertx;
+    private final Map<String, NavigableMap<String, ByteString>> collections;
+    private final Map<String, Iterator<Map.Entry<String, ByteString>>> queries;
+    private final Map<String, CompletableFuture<ChaincodeMessage>> transactions;
+    private final CompletableFuture<Void> registered;
+    private final AtomicLong queryIds;
+    private final Map<ChaincodeMessage.Type, LongAdder> requests;
+    private volatile Predicate<String> rejectedWrites;
+    private volatile long latency;
+    private volatile int queryPageSize;
+    private volatile StreamObserver<ChaincodeMessage> chaincode;
+    private Server inProcessServer;
+    private String inProcessName;
+
+    public MockPeer(Vertx vertx) {
+        this.vertx = vertx;
+        this.collections = new ConcurrentHashMap<>();
+        this.queries = new ConcurrentHashMap<>();
+        this.transactions = new ConcurrentHashMap<>();
+        this.registered = new CompletableFuture<>();
+        this.queryIds = new AtomicLong();
+        this.requests = new ConcurrentHashMap<>();
+        this.rejectedWrites = key -> false;
+        this.queryPageSize = DEFAULT_QUERY_PAGE_SIZE;
+    }
+
+    /**
+     * Delays every answer of the peer.
+     *
+     * @param latency the delay in milliseconds, 0 to answer immediately
+     * @return a reference to this, so the API can be used fluently
+     */
+    public MockPeer setLatency(long latency) {
+        if (latency < 0) {
+            throw new IllegalArgumentException("latency cannot be negative");
+        }
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Sets the number of results returned by every page of a range query. As on the peer, a
+     * full page announces more results, so a query ending on a full page ends with an empty
+     * one.
+     *
+     * @param queryPageSize the number of results per page
+     * @return a reference to this, so the API can be used fluently
+     */
+    public MockPeer setQueryPageSize(int queryPageSize) {
+        if (queryPageSize < 1) {
+            throw new IllegalArgumentException("queryPageSize must be greater than 0");
+        }
+        this.queryPageSize = queryPageSize;
+        return this;
+    }
+
+    /**
+     * Answers the PUT_STATE and DEL_STATE requests of the matching keys with an ERROR,
+     * leaving the state unchanged.
+     *
+     * @param keys the filter of the rejected keys
+     * @return a reference to this, so the API can be used fluently
+     */
+    public MockPeer rejectWrites(Predicate<String> keys) {
+        if (keys == null) {
+            throw new NullPointerException("keys cannot be null");
+        }
+        this.rejectedWrites = keys;
+        return this;
+    }
+
+    /**
+     * Returns the number of requests of the given type received from the chaincode.
+     */
+    public long getRequestCount(ChaincodeMessage.Type type) {
+        final LongAdder count = requests.get(type);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Returns the public world state. It can be seeded or inspected directly.
+     */
+    public NavigableMap<String, ByteString> getState() {
+        return getCollection("");
+    }
+
+    /**
+     * Returns the world state of a private data collection, the empty collection being the
+     * public state.
+     */
+    public NavigableMap<String, ByteString> getCollection(String collection) {
+        return collections.computeIfAbsent(collection, c -> new ConcurrentSkipListMap<>());
+    }
+
+    /**
+     * Returns a channel to this peer over the gRPC in-process transport, starting the
+     * in-process server on the first call.
+     */
+    public synchronized ManagedChannel newInProcessChannel() throws IOException {
+        if (inProcessServer == null) {
+            inProcessName = "mock-peer-" + UUID.randomUUID();
+            inProcessServer = InProcessServerBuilder.forName(inProcessName).addService(this).build().start();
+        }
+        return InProcessChannelBuilder.forName(inProcessName).build();
+    }
+
+    /**
+     * Starts a plaintext gRPC server, for chaincodes connecting with
+     * {@link tech.lacambra.fabric.javachaincode.ChaincodeOptions#setPeerPort(int)}.
+     */
+    public VertxServer listen(String host, int port, Handler<AsyncResult<Void>> completionHandler) {
+        VertxServer server = VertxServerBuilder.forAddress(vertx, host, port).addService(this).build();
+        return server.start(completionHandler);
+    }
+
+    public synchronized void close() {
+        if (inProcessServer != null) {
+            inProcessServer.shutdownNow();
+            inProcessServer = null;
+        }
+    }
+
+    /**
+     * Completes once a chaincode registered with this peer.
+     */
+    public CompletableFuture<Void> registration() {
+        return registered;
+    }
+
+    /**
+     * Sends an INIT message to the registered chaincode.
+     *
+     * @return the COMPLETED or ERROR message closing the transaction
+     */
+    public CompletableFuture<ChaincodeMessage> init(String channelId, String txId, List<ByteString> args) {
+        return execute(ChaincodeMessage.Type.INIT, channelId, txId, args);
+    }
+
+    /**
+     * Sends a TRANSACTION message to the registered chaincode.
+     *
+     * @return the COMPLETED or ERROR message closing the transaction
+     */
+    public CompletableFuture<ChaincodeMessage> invoke(String channelId, String txId, List<ByteString> args) {
+        return execute(ChaincodeMessage.Type.TRANSACTION, channelId, txId, args);
+    }
+
+    private CompletableFuture<ChaincodeMessage> execute(ChaincodeMessage.Type type, String channelId, String txId, List<ByteString> args) {
+        final StreamObserver<ChaincodeMessage> registeredChaincode = chaincode;
+        if (registeredChaincode == null) {
+            throw new IllegalStateException("No chaincode registered");
+        }
+
+        final CompletableFuture<ChaincodeMessage> completion = new CompletableFuture<>();
+        if (transactions.putIfAbsent(channelId + txId, completion) != null) {
+            throw new IllegalStateException("Transaction " + txId + " is already running");
+        }
+
+        send(registeredChaincode, ChaincodeMessage.newBuilder()
+                .setType(type)
+                .setChannelId(channelId)
+                .setTxid(txId)
+                .setPayload(ChaincodeInput.newBuilder().addAllArgs(args).build().toByteString())
+                .build());
+        return completion;
+    }
+
+    @Override
+    public StreamObserver<ChaincodeMessage> register(StreamObserver<ChaincodeMessage> responseObserver) {
+        return new StreamObserver<ChaincodeMessage>() {
+
+            @Override
+            public void onNext(ChaincodeMessage message) {
+                handle(responseObserver, message);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                logger.warning("[onError] Chaincode stream failed: " + t);
+                chaincode = null;
+            }
+
+            @Override
+            public void onCompleted() {
+                chaincode = null;
+                responseObserver.onCompleted();
+            }
+        };
+    }
+
+    private void handle(StreamObserver<ChaincodeMessage> stream, ChaincodeMessage message) {
+        requests.computeIfAbsent(message.getType(), type -> new LongAdder()).increment();
+        try {
+            switch (message.getType()) {
+                case REGISTER:
+                    chaincode = stream;
+                    reply(stream, message, ChaincodeMessage.Type.REGISTERED, ByteString.EMPTY);
+                    reply(stream, message, ChaincodeMessage.Type.READY, ByteString.EMPTY);
+                    registered.complete(null);
+                    break;
+                case COMPLETED:
+                case ERROR:
+                    final CompletableFuture<ChaincodeMessage> completion = transactions.remove(message.getChannelId() + message.getTxid());
+                    if (completion != null) {
+                        completion.complete(message);
+                    }
+                    break;
+                case GET_STATE:
+                    final ChaincodeShim.GetState getState = ChaincodeShim.GetState.parseFrom(message.getPayload());
+                    final ByteString value = getCollection(getState.getCollection()).get(getState.getKey());
+                    reply(stream, message, ChaincodeMessage.Type.RESPONSE, value == null ? ByteString.EMPTY : value);
+                    break;
+                case PUT_STATE:
+                    final ChaincodeShim.PutState putState = ChaincodeShim.PutState.parseFrom(message.getPayload());
+                    if (rejectedWrites.test(putState.getKey())) {
+                        reply(stream, message, ChaincodeMessage.Type.ERROR, ByteString.copyFromUtf8("Write of " + putState.getKey() + " rejected"));
+                        break;
+                    }
+                    getCollection(putState.getCollection()).put(putState.getKey(), putState.getValue());
+                    reply(stream, message, ChaincodeMessage.Type.RESPONSE, ByteString.EMPTY);
+                    break;
+                case DEL_STATE:
+                    final ChaincodeShim.DelState delState = ChaincodeShim.DelState.parseFrom(message.getPayload());
+                    if (rejectedWrites.test(delState.getKey())) {
+                        reply(stream, message, ChaincodeMessage.Type.ERROR, ByteString.copyFromUtf8("Delete of " + delState.getKey() + " rejected"));
+                        break;
+                    }
+                    getCollection(delState.getCollection()).remove(delState.getKey());
+                    reply(stream, message, ChaincodeMessage.Type.RESPONSE, ByteString.EMPTY);
+                    break;
+                case GET_STATE_BY_RANGE:
+                    final ChaincodeShim.GetStateByRange range = ChaincodeShim.GetStateByRange.parseFrom(message.getPayload());
+                    final String queryId = String.valueOf(queryIds.incrementAndGet());
+                    queries.put(queryId, subMap(getCollection(range.getCollection()), range.getStartKey(), range.getEndKey()).entrySet().iterator());
+                    reply(stream, message, ChaincodeMessage.Type.RESPONSE, nextPage(queryId).toByteString());
+                    break;
+                case GET_QUERY_RESULT:
+                    final ChaincodeShim.GetQueryResult richQuery = ChaincodeShim.GetQueryResult.parseFrom(message.getPayload());
+                    final JsonObject selector;
+                    try {
+                        selector = new JsonObject(richQuery.getQuery());
+                    } catch (DecodeException e) {
+                        reply(stream, message, ChaincodeMessage.Type.ERROR, ByteString.copyFromUtf8("Invalid query: " + e.getMessage()));
+                        break;
+                    }
+                    final String richQueryId = String.valueOf(queryIds.incrementAndGet());
+                    queries.put(richQueryId, getCollection(richQuery.getCollection()).entrySet().stream()
+                            .skip(selector.getInteger("skip", 0))
+                            .limit(selector.getInteger("limit", Integer.MAX_VALUE))
+                            .iterator());
+                    reply(stream, message, ChaincodeMessage.Type.RESPONSE, nextPage(richQueryId).toByteString());
+                    break;
+                case QUERY_STATE_NEXT:
+                    final ChaincodeShim.QueryStateNext next = ChaincodeShim.QueryStateNext.parseFrom(message.getPayload());
+                    if (!queries.containsKey(next.getId())) {
+                        reply(stream, message, ChaincodeMessage.Type.ERROR, ByteString.copyFromUtf8("Unknown query " + next.getId()));
+                    } else {
+                        reply(stream, message, ChaincodeMessage.Type.RESPONSE, nextPage(next.getId()).toByteString());
+                    }
+                    break;
+                case QUERY_STATE_CLOSE:
+                    final ChaincodeShim.QueryStateClose close = ChaincodeShim.QueryStateClose.parseFrom(message.getPayload());
+                    queries.remove(close.getId());
+                    reply(stream, message, ChaincodeMessage.Type.RESPONSE, ChaincodeShim.QueryResponse.newBuilder()
+                            .setId(close.getId())
+                            .setHasMore(false)
+                            .build().toByteString());
+                    break;
+                case KEEPALIVE:
+                    break;
+                default:
+                    reply(stream, message, ChaincodeMessage.Type.ERROR, ByteString.copyFromUtf8(message.getType() + " is not supported by the mock peer"));
+            }
+        } catch (InvalidProtocolBufferException e) {
+            reply(stream, message, ChaincodeMessage.Type.ERROR, ByteString.copyFromUtf8(e.getMessage()));
+        }
+    }
+
+    /*
+     * The shim sends U+0001 for an unspecified bound, which stands for the first or the
+     * last key of the state.
+     */
+    private static NavigableMap<String, ByteString> subMap(NavigableMap<String, ByteString> state, String startKey, String endKey) {
+        final boolean unboundedStart = startKey.isEmpty() || startKey.equals("\u0001");
+        final boolean unboundedEnd = endKey.isEmpty() || endKey.equals("\u0001");
+
+        if (unboundedStart && unboundedEnd) return state;
+        if (unboundedStart) return state.headMap(endKey, false);
+        if (unboundedEnd) return state.tailMap(startKey, true);
+        if (startKey.compareTo(endKey) >= 0) return new ConcurrentSkipListMap<>();
+        return state.subMap(startKey, true, endKey, false);
+    }
+
+    private ChaincodeShim.QueryResponse nextPage(String queryId) {
+        final Iterator<Map.Entry<String, ByteString>> results = queries.get(queryId);
+        final ChaincodeShim.QueryResponse.Builder page = ChaincodeShim.QueryResponse.newBuilder().setId(queryId);
+
+        for (int i = 0; i < queryPageSize && results.hasNext(); i++) {
+            final Map.Entry<String, ByteString> entry = results.next();
+            page.addResults(ChaincodeShim.QueryResultBytes.newBuilder()
+                    .setResultBytes(KvQueryResult.KV.newBuilder()
+                            .setKey(entry.getKey())
+                            .setValue(entry.getValue())
+                            .build().toByteString()));
+        }
+
+        // like the peer, announce more results whenever the page is full
+        final boolean full = page.getResultsCount() == queryPageSize;
+        page.setHasMore(full);
+        if (!full) {
+            queries.remove(queryId);
+        }
+        return page.build();
+    }
+
+    private void reply(StreamObserver<ChaincodeMessage> stream, ChaincodeMessage request, ChaincodeMessage.Type type, ByteString payload) {
+        final ChaincodeMessage response = ChaincodeMessage.newBuilder()
+                .setType(type)
+                .setChannelId(request.getChannelId())
+                .setTxid(request.getTxid())
+                .setPayload(payload)
+                .build();
+
+        final long delay = latency;
+        if (delay == 0) {
+            send(stream, response);
+        } else {
+            vertx.setTimer(delay, timerId -> send(stream, response));
+        }
+    }
+
+    /*
+     * The gRPC observer is not thread safe, answers and transactions are sent from
+     * several threads.
+     */
+    private static void send(StreamObserver<ChaincodeMessage> stream, ChaincodeMessage message) {
+        synchronized (stream) {
+            stream.onNext(message);
+        }
+    }
+}
@@ -1,9 +0,0 @@
-package tech.lacambra.fabric.javachaincode;
-
-public interface Chaincode {
-
-    Response init(AsyncChaincodeStub stub);
-
-    Response invoke(AsyncChaincodeStub stub);
-
-}